@@ -0,0 +1,155 @@
+package de.aschoerk.javaconv;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.ArrayAccessExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
+import com.github.javaparser.ast.expr.CharLiteralExpr;
+import com.github.javaparser.ast.expr.DoubleLiteralExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralMinValueExpr;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
+import com.github.javaparser.ast.expr.LongLiteralMinValueExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+
+/**
+ * Collects declarations, usages and changes like the IdTrackerVisitor and types the expressions like the
+ * TypeTrackerVisitor in the same traversal. Literals are typed as they are met. Names can only be typed when all
+ * declarations are known, and operators and array accesses depend on them, so these nodes are kept in a worklist,
+ * in the order the TypeTrackerVisitor would type them, and typed after the traversal. Operators whose operands
+ * change their type afterwards are settled by the type tracker.
+ *
+ * @author aschoerk
+ */
+public class AnalysisVisitor extends IdTrackerVisitor {
+
+    private final List<Node> deferred = new ArrayList<>();
+
+    private TypeTrackerVisitor typeTracker;
+
+    public AnalysisVisitor() {
+        super();
+    }
+
+    public AnalysisVisitor(final ClassLookup classLookup) {
+        super(classLookup);
+    }
+
+    /**
+     * @return the type tracker holding the types of the last analysed compilation unit.
+     */
+    public TypeTrackerVisitor getTypeTracker() {
+        return typeTracker;
+    }
+
+    @Override
+    public void visit(final CompilationUnit n, final IdTracker arg) {
+        typeTracker = new TypeTrackerVisitor(arg);
+        deferred.clear();
+        super.visit(n, arg);
+        for (Node node : deferred) {
+            typeTracker.typeNode(node);
+        }
+        deferred.clear();
+        typeTracker.settle();
+        typeTracker.markFloatContexts(n);
+    }
+
+    /**
+     * walks down the left operands iteratively, long chains like a + b + c + ... are nested to the left.
+     */
+    @Override
+    public void visit(final BinaryExpr n, final IdTracker arg) {
+        Deque<BinaryExpr> chain = new ArrayDeque<>();
+        Expression e = n;
+        while (e instanceof BinaryExpr) {
+            BinaryExpr b = (BinaryExpr) e;
+            if (b.getComment() != null) {
+                b.getComment().accept(this, arg);
+            }
+            chain.push(b);
+            e = b.getLeft();
+        }
+        e.accept(this, arg);
+        while (!chain.isEmpty()) {
+            BinaryExpr b = chain.pop();
+            b.getRight().accept(this, arg);
+            deferred.add(b);
+        }
+    }
+
+    @Override
+    public void visit(final UnaryExpr n, final IdTracker arg) {
+        deferred.add(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final ArrayAccessExpr n, final IdTracker arg) {
+        deferred.add(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final NameExpr n, final IdTracker arg) {
+        deferred.add(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final IntegerLiteralExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final IntegerLiteralMinValueExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final LongLiteralExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final LongLiteralMinValueExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final DoubleLiteralExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final CharLiteralExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final BooleanLiteralExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final StringLiteralExpr n, final IdTracker arg) {
+        typeTracker.typeNode(n);
+        super.visit(n, arg);
+    }
+}
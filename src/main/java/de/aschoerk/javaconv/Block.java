@@ -1,11 +1,12 @@
 package de.aschoerk.javaconv;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
+import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -16,52 +17,62 @@ import com.github.javaparser.ast.Node;
  */
 public class Block {
     public static final long FICTIONAL_LINE_SIZE = 10000000L;
-    AtomicInteger blockCount = new AtomicInteger(0);
     Block parentBlock;
-    List<Block> children = new ArrayList<>();
+    List<Block> children = Collections.emptyList();
     int id;
     Node n;
-    HashMap<String, List<Node>> changes = new HashMap<>();
-    HashMap<String, Pair<TypeDescription,Node>> declarations = new HashMap<>();
-    HashMap<String, List<Node>> usages = new HashMap<>();
-
-
-
-    public Block(IdTracker idTracker, Node n) {
-        if (!idTracker.currentBlocks.empty()) {
-            this.parentBlock = idTracker.currentBlocks.peek();
-            this.parentBlock.children.add(this);
+    // source range packed by position(line, column)
+    private final long begin;
+    private final long end;
+    // allocated when the first entry is added, most blocks only declare or change a few names
+    Map<String, List<Node>> changes = Collections.emptyMap();
+    Map<String, Pair<TypeDescription,Node>> declarations = Collections.emptyMap();
+    Map<String, List<Node>> usages = Collections.emptyMap();
+    // ids of names changed in this block or its descendants, and the part of it not declared here
+    BitSet changedNames;
+    BitSet escapingChanges;
+
+
+    public Block(int id, Block parent, Node n) {
+        this(id, n);
+        this.parentBlock = parent;
+        if (parent.children.isEmpty()) {
+            parent.children = new ArrayList<>(4);
         }
-        this.n = n;
-        this.id = blockCount.incrementAndGet();
+        parent.children.add(this);
     }
 
-    public Block(Block parent, Node n) {
-        this(n);
-        this.parentBlock = parent;
-        parent.children.add(this);
+    public Block(int id, Node n) {
+        this.n = n;
+        this.id = id;
+        this.begin = position(n.getBeginLine(), n.getBeginColumn());
+        this.end = position(n.getEndLine(), n.getEndColumn());
     }
 
     public Block(Node n) {
-        this.n = n;
-        this.id = blockCount.incrementAndGet();
+        this(1, n);
     }
 
-    private void add(String name, Node node, HashMap<String, List<Node>> map) {
+    private static Map<String, List<Node>> add(String name, Node node, Map<String, List<Node>> map) {
+        if (map.isEmpty()) {
+            // still the shared empty map
+            map = new HashMap<>();
+        }
         List<Node> value = map.get(name);
         if (value == null) {
-            map.put(name, new ArrayList<Node>() {{ add(node); }} );
-        } else {
-            value.add(node);
+            value = new ArrayList<>(2);
+            map.put(name, value);
         }
+        value.add(node);
+        return map;
     }
 
     public void addChange(String name, Node node) {
-        add(name, node, changes);
+        changes = add(name, node, changes);
     }
 
     public void addUsage(String name, Node node) {
-        add(name, node, usages);
+        usages = add(name, node, usages);
     }
 
     public void addDeclaration(String name, Pair<TypeDescription,Node> description) {
@@ -69,49 +80,54 @@ public class Block {
             throw new RuntimeException("expected declarations to be added only once: " + description.getRight() + " at " + description.getRight().getRange()
                     + ", already in " + declarations.get(name).getRight().getRange());
         }
+        if (declarations.isEmpty()) {
+            declarations = new HashMap<>();
+        }
         declarations.put(name, description);
     }
 
     boolean contains(Block b) {
-        return contains(b.n);
+        return b.begin >= begin && b.end <= end;
     }
 
     boolean contains(Node nP) {
-        if (nP.getBeginLine() < this.n.getBeginLine()) {
-            return false;
-        }
-        if (nP.getBeginLine() == this.n.getBeginLine()) {
-            if (nP.getBeginColumn() < this.n.getBeginColumn()) {
-                return false;
-            }
-        }
-        if (nP.getEndLine() > this.n.getEndLine()) {
-            return false;
-        }
-        if (nP.getEndLine() == this.n.getEndLine()) {
-            return nP.getEndColumn() <= this.n.getEndColumn();
-        }
-        return true;
+        return position(nP.getBeginLine(), nP.getBeginColumn()) >= begin
+               && position(nP.getEndLine(), nP.getEndColumn()) <= end;
     }
 
     public int getId() {
         return id;
     }
 
+    static long position(int line, int column) {
+        return line * FICTIONAL_LINE_SIZE + column;
+    }
+
+    long begin() {
+        return begin;
+    }
+
+    long end() {
+        return end;
+    }
+
     public long size() {
-        return (n.getEndLine() - n.getBeginLine()) * FICTIONAL_LINE_SIZE
-                + (n.getEndColumn() + FICTIONAL_LINE_SIZE - n.getBeginColumn());
+        return end - begin + FICTIONAL_LINE_SIZE;
     }
 
     public boolean disjunctChildren() {
-        return !IntStream.range(0, children.size())
-                // find blocks whose children overlap.
-                .filter(i1 ->
-                        // following children overlap with this one ??
-                        IntStream.range(i1 + 1, children.size())
-                                .filter(i2 -> children.get(i1).contains(children.get(i2))).findAny().isPresent()
-                )
-                .findAny().isPresent();
+        if (children.size() < 2) {
+            return true;
+        }
+        // children are added in source order, sorting is cheap then
+        List<Block> sorted = new ArrayList<>(children);
+        sorted.sort(Comparator.comparingLong(Block::begin));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).begin <= sorted.get(i - 1).end) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
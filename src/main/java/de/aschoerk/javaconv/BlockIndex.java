@@ -0,0 +1,90 @@
+package de.aschoerk.javaconv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import com.github.javaparser.ast.Node;
+
+/**
+ * Index over the source ranges of the blocks collected by the IdTracker.
+ *
+ * Blocks are properly nested, so the source positions can be cut into elementary segments, each owned by the
+ * innermost block covering it. The innermost block of a node is then found by a binary search for the segment
+ * its begin position falls into.
+ *
+ * @author aschoerk
+ */
+class BlockIndex {
+
+    private final long[] segmentStarts;
+    private final Block[] segmentOwners;
+    private final Block root;
+
+    BlockIndex(List<Block> blocks) {
+        List<Block> sorted = new ArrayList<>(blocks);
+        // outer blocks first if starting at the same position, list order is kept for identical ranges
+        sorted.sort(Comparator.comparingLong(Block::begin).thenComparing(Comparator.comparingLong(Block::end).reversed()));
+
+        long[] starts = new long[sorted.size() * 2 + 1];
+        Block[] owners = new Block[starts.length];
+        int count = 0;
+        Block largest = null;
+        List<Block> open = new ArrayList<>();
+        for (Block b : sorted) {
+            count = closeBefore(b.begin(), open, starts, owners, count);
+            if (open.isEmpty() && (largest == null || b.size() > largest.size())) {
+                largest = b;
+            }
+            count = addSegment(b.begin(), b, starts, owners, count);
+            open.add(b);
+        }
+        count = closeBefore(Long.MAX_VALUE, open, starts, owners, count);
+        this.segmentStarts = Arrays.copyOf(starts, count);
+        this.segmentOwners = Arrays.copyOf(owners, count);
+        this.root = largest;
+    }
+
+    private static int closeBefore(long position, List<Block> open, long[] starts, Block[] owners, int count) {
+        while (!open.isEmpty() && open.get(open.size() - 1).end() < position) {
+            Block closed = open.remove(open.size() - 1);
+            Block owner = open.isEmpty() ? null : open.get(open.size() - 1);
+            count = addSegment(closed.end() + 1, owner, starts, owners, count);
+        }
+        return count;
+    }
+
+    private static int addSegment(long start, Block owner, long[] starts, Block[] owners, int count) {
+        if (count > 0 && starts[count - 1] == start) {
+            owners[count - 1] = owner;
+            return count;
+        }
+        starts[count] = start;
+        owners[count] = owner;
+        return count + 1;
+    }
+
+    Optional<Block> findRoot() {
+        return Optional.ofNullable(root);
+    }
+
+    Optional<Block> findInnerMostBlock(Node n) {
+        int i = Arrays.binarySearch(segmentStarts, Block.position(n.getBeginLine(), n.getBeginColumn()));
+        if (i < 0) {
+            i = -i - 2;
+        }
+        Block b = i < 0 ? null : segmentOwners[i];
+        // blocks starting at the same position as n may lie inside of n
+        while (b != null && !b.contains(n)) {
+            b = b.parentBlock;
+        }
+        // of blocks having identical ranges the outer one is taken
+        while (b != null && b.parentBlock != null
+               && b.parentBlock.begin() == b.begin() && b.parentBlock.end() == b.end()) {
+            b = b.parentBlock;
+        }
+        return Optional.ofNullable(b);
+    }
+}
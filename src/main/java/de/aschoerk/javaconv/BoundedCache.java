@@ -0,0 +1,84 @@
+package de.aschoerk.javaconv;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache holding at most about maxSize entries, null values are cached too. Counts hits, misses and
+ * evictions, so the caches shared by all conversions can be watched.
+ *
+ * @author aschoerk
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final ConcurrentHashMap<K, Optional<V>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key    the key
+     * @param loader called if the key is not cached, must always return the same for a key, may return null
+     * @return the cached or loaded value
+     */
+    public V get(final K key, final Function<? super K, ? extends V> loader) {
+        Optional<V> result = cache.get(key);
+        if (result != null) {
+            hits.incrementAndGet();
+            return result.orElse(null);
+        }
+        misses.incrementAndGet();
+        result = Optional.ofNullable(loader.apply(key));
+        if (cache.size() >= maxSize) {
+            evict();
+        }
+        cache.put(key, result);
+        return result.orElse(null);
+    }
+
+    /**
+     * remove about a tenth of the entries, the hash order of the map makes the choice of victims random enough.
+     */
+    private void evict() {
+        int toRemove = Math.max(1, maxSize / 10);
+        for (Iterator<K> it = cache.keySet().iterator(); it.hasNext() && toRemove > 0; toRemove--) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size=" + size() + ",hits=" + getHits() + ",misses=" + getMisses()
+               + ",evictions=" + getEvictions() + ']';
+    }
+}
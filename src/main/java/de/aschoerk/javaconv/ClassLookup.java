@@ -0,0 +1,37 @@
+package de.aschoerk.javaconv;
+
+/**
+ * Answers the questions the converter has about classes referenced by the converted source.
+ *
+ * @author aschoerk
+ */
+public interface ClassLookup {
+
+    /**
+     * @return the lookup used if nothing else is configured: the prebuilt symbol index if it is on the classpath,
+     * falling back to reflection on the JDK classes it does not contain, reflection only otherwise.
+     */
+    static ClassLookup getDefault() {
+        return SymbolIndex.defaultLookup();
+    }
+
+    /**
+     * @param className fully qualified name of a class
+     * @return true if the class is known.
+     */
+    boolean exists(String className);
+
+    /**
+     * @param className fully qualified name of a known class
+     * @return the class to be used for type tracking.
+     */
+    Class typeOf(String className);
+
+    /**
+     * @param className  fully qualified name of a known class
+     * @param methodName name of the called method
+     * @param argCount   number of arguments at the call site
+     * @return the parameter types of the method called, null if there is none or it is ambiguous.
+     */
+    Class<?>[] parameterTypesFor(String className, String methodName, int argCount);
+}
@@ -0,0 +1,67 @@
+package de.aschoerk.javaconv;
+
+import java.util.function.Function;
+
+/**
+ * Remembers which class a simple type name resolved to by a class lookup in a given import context, including names
+ * that could not be resolved at all. Shared by all conversions, so the expensive class lookups, and with reflection
+ * the ClassNotFoundExceptions, happen only once per lookup, context and name.
+ *
+ * @author aschoerk
+ */
+public class ClassResolutionCache extends BoundedCache<ClassResolutionCache.Key, String> {
+
+    private static final ClassResolutionCache shared = new ClassResolutionCache(20000);
+
+    public ClassResolutionCache(final int maxSize) {
+        super(maxSize);
+    }
+
+    public static ClassResolutionCache getShared() {
+        return shared;
+    }
+
+    /**
+     * @param lookup   the class lookup the resolver asks, results of different lookups are kept apart
+     * @param context  identifies everything the resolution depends on besides the lookup and the name (package and
+     *                 imports)
+     * @param name     the simple name to be resolved
+     * @param resolver called if the name has not been resolved by this lookup in this context before, may return null
+     * @return the fully qualified name of the class the name resolves to, null if it could not be resolved
+     */
+    public String resolve(final ClassLookup lookup, final String context, final String name,
+                          final Function<String, String> resolver) {
+        return get(new Key(lookup, context, name), key -> resolver.apply(name));
+    }
+
+    static final class Key {
+        private final ClassLookup lookup;
+        private final String context;
+        private final String name;
+        private final int hash;
+
+        Key(final ClassLookup lookup, final String context, final String name) {
+            this.lookup = lookup;
+            this.context = context;
+            this.name = name;
+            this.hash = 31 * (31 * System.identityHashCode(lookup) + context.hashCode()) + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && lookup == other.lookup && name.equals(other.name) && context.equals(other.context);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.aschoerk.javaconv;
+
+import static com.github.javaparser.PositionUtils.sortByBeginPosition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.comments.Comment;
+
+/**
+ * Places the orphan comments of a tree in one pass: the children of each node are sorted by position once, each
+ * comment is attached either to the next child that is not a comment, as leading comment, or to the parent, as
+ * trailing comment, if no such child follows. Only nodes having orphan comments are kept.
+ *
+ * @author aschoerk
+ */
+class CommentPlacement {
+
+    private final Map<Node, List<Comment>> leading = new IdentityHashMap<>();
+    private final Map<Node, List<Comment>> trailing = new IdentityHashMap<>();
+
+    CommentPlacement(Node root) {
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            Node n = todo.pop();
+            List<Node> children = n.getChildrenNodes();
+            if (children.isEmpty()) {
+                continue;
+            }
+            List<Node> sorted = new ArrayList<>(children);
+            sortByBeginPosition(sorted);
+            List<Comment> pending = null;
+            for (Node child : sorted) {
+                if (child instanceof Comment) {
+                    if (pending == null) {
+                        pending = new ArrayList<>();
+                    }
+                    pending.add((Comment) child);
+                } else {
+                    if (pending != null) {
+                        leading.put(child, pending);
+                        pending = null;
+                    }
+                    todo.push(child);
+                }
+            }
+            if (pending != null) {
+                trailing.put(n, pending);
+            }
+        }
+    }
+
+    /**
+     * @return the orphan comments between the previous sibling of the node, that is not a comment, and the node.
+     */
+    List<Comment> leading(Node n) {
+        return leading.getOrDefault(n, Collections.emptyList());
+    }
+
+    /**
+     * @return the orphan comments after the last child of the node, that is not a comment.
+     */
+    List<Comment> trailing(Node n) {
+        return trailing.getOrDefault(n, Collections.emptyList());
+    }
+}
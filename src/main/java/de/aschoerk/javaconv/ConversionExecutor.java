@@ -0,0 +1,209 @@
+package de.aschoerk.javaconv;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs conversions on a pool of worker threads having a large stack, so that deeply nested sources, long else if
+ * chains for example, can be handled by the recursive parser and visitors. Sources nested deeper than the nesting
+ * limit are rejected with a NestingTooDeepException before they are analysed.
+ *
+ * @author aschoerk
+ */
+public class ConversionExecutor {
+
+    public static final long DEFAULT_STACK_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_NESTING_LIMIT = 5000;
+
+    private static final int CHUNK_QUEUE_CAPACITY = 16;
+
+    private static final ConversionExecutor shared = new ConversionExecutor();
+
+    private final ExecutorService pool;
+    private final int nestingLimit;
+    private final ValidationLevel validationLevel;
+
+    public ConversionExecutor() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_STACK_SIZE, DEFAULT_NESTING_LIMIT, ValidationLevel.OFF);
+    }
+
+    /**
+     * @param threads         the number of worker threads
+     * @param stackSize       the stack size of the worker threads in bytes, see Thread(ThreadGroup, Runnable, String, long)
+     * @param nestingLimit    the deepest nesting of the syntax tree converted, 0 for no limit
+     * @param validationLevel how thoroughly the block structure is checked
+     */
+    public ConversionExecutor(final int threads, final long stackSize, final int nestingLimit, final ValidationLevel validationLevel) {
+        this.nestingLimit = nestingLimit;
+        this.validationLevel = validationLevel;
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(null, r, "java-converter-" + count.incrementAndGet(), stackSize);
+            t.setDaemon(true);
+            return t;
+        };
+        this.pool = Executors.newFixedThreadPool(threads, factory);
+    }
+
+    public static ConversionExecutor getShared() {
+        return shared;
+    }
+
+    public Future<String> submit(final String javaString) {
+        return pool.submit(() -> converter().convert(javaString));
+    }
+
+    /**
+     * converts on a worker thread and waits for the result.
+     *
+     * @throws NestingTooDeepException if the source is nested deeper than the limit
+     */
+    public String convert(final String javaString) {
+        return await(submit(javaString));
+    }
+
+    /**
+     * converts like JavaConverter.convert(Reader, Appendable), each top level type is written to out as soon as it
+     * is converted. The worker hands the types over in a bounded queue, in is read and out is written by the calling
+     * thread only, so a worker cancelled after an interrupt can not write to out.
+     *
+     * @throws NestingTooDeepException if the source is nested deeper than the limit
+     */
+    public void convert(final Reader in, final Appendable out) throws IOException {
+        CharSequence javaString = PartParser.read(in);
+        ChunkQueue chunks = new ChunkQueue(CHUNK_QUEUE_CAPACITY);
+        Future<Void> future = pool.submit(() -> {
+            try {
+                converter().convert(javaString, chunks);
+            } finally {
+                chunks.close();
+            }
+            return null;
+        });
+        boolean drained = false;
+        try {
+            for (String chunk = chunks.take(); chunk != ChunkQueue.END; chunk = chunks.take()) {
+                out.append(chunk);
+                if (out instanceof Flushable) {
+                    ((Flushable) out).flush();
+                }
+            }
+            drained = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for conversion", e);
+        } finally {
+            if (!drained) {
+                chunks.cancel();
+                future.cancel(true);
+            }
+        }
+        await(future);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private JavaConverter converter() {
+        JavaConverter converter = new JavaConverter(validationLevel);
+        converter.setNestingLimit(nestingLimit);
+        return converter;
+    }
+
+    /**
+     * the output of a conversion, handed over from the worker to the calling thread chunk by chunk. The worker
+     * blocks while the queue is full, once the caller cancelled, it fails with a CancellationException instead of
+     * adding more.
+     */
+    private static class ChunkQueue implements Appendable {
+        // compared by identity, marks the end of the output
+        static final String END = new String();
+
+        private final BlockingQueue<String> queue;
+        private volatile boolean cancelled = false;
+
+        ChunkQueue(final int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        // the chunks are copied, the printer reuses its buffer
+        @Override
+        public Appendable append(final CharSequence csq) {
+            put(csq.toString());
+            return this;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) {
+            put(csq.subSequence(start, end).toString());
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) {
+            put(String.valueOf(c));
+            return this;
+        }
+
+        String take() throws InterruptedException {
+            return queue.take();
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        void close() {
+            try {
+                put(END);
+            } catch (CancellationException e) {
+                ;  // nobody is waiting for the end anymore
+            }
+        }
+
+        // rechecks the flag while the queue is full, in case the interrupt of the cancel was consumed elsewhere
+        private void put(final String chunk) {
+            try {
+                while (!cancelled) {
+                    if (queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CancellationException();
+        }
+    }
+
+    private static <T> T await(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("interrupted while waiting for conversion", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
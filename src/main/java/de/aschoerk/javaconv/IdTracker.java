@@ -4,6 +4,7 @@ import java.util.*;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
 
 import com.github.javaparser.ast.Node;
 
@@ -14,7 +15,23 @@ public class IdTracker {
 
     int tryCount;
 
-    public IdentityHashMap<Node, Class> types = new IdentityHashMap<>();
+    private static final byte INNER_MOST_BLOCK_KNOWN = 1;
+    private static final byte BOUND = 2;
+    private static final byte FLOAT_CONTEXT_KNOWN = 4;
+    private static final byte FLOAT_CONTEXT = 8;
+
+    private final NodeIds nodeIds = new NodeIds();
+
+    // attributes of the nodes indexed by their ids
+    private Class[] types = new Class[0];
+    private Block[] innerMostBlocks = new Block[0];
+    // resolved declaration for each referencing node, null if the name is not declared in the source
+    private Pair<TypeDescription, Node>[] bindings = newBindings(0);
+    private byte[] flags = new byte[0];
+
+    private boolean innerMostBlocksKnown = false;
+
+    private ValidationLevel validationLevel = ValidationLevel.OFF;
 
     String packageName = null;
 
@@ -35,18 +52,60 @@ public class IdTracker {
     }
 
 
+    public void setValidationLevel(final ValidationLevel validationLevel) {
+        this.validationLevel = validationLevel;
+    }
+
     public String getPackageName() {
         return packageName;
     }
 
     public void setPackageName(final String packageName) {
         this.packageName = packageName;
+        this.importContext = null;
+        this.importTable = null;
     }
 
     List<Import> imports = new ArrayList<>();
 
+    private String importContext = null;
+
+    private ImportTable importTable = null;
+
     public void addImport(Import i) {
         imports.add(i);
+        importContext = null;
+        importTable = null;
+    }
+
+    void setImportTable(ImportTable importTable) {
+        this.importTable = importTable;
+    }
+
+    ImportTable getImportTable() {
+        if (importTable == null) {
+            importTable = new ImportTable(packageName, imports);
+        }
+        return importTable;
+    }
+
+    /**
+     * @return string identifying everything, besides the name itself, the resolution of a type name depends on.
+     */
+    public String getImportContext() {
+        if (importContext == null) {
+            StringBuilder sb = new StringBuilder(String.valueOf(packageName));
+            for (Import i : imports) {
+                if (!i.isStaticImport()) {
+                    sb.append(';').append(i.getImportString());
+                    if (i.isWildcardImport()) {
+                        sb.append(".*");
+                    }
+                }
+            }
+            importContext = sb.toString();
+        }
+        return importContext;
     }
 
     public List<Import> getImports() {
@@ -57,6 +116,13 @@ public class IdTracker {
 
     Stack<Block> currentBlocks = new Stack<>();
 
+    private BlockIndex blockIndex = null;
+
+    private HashMap<String, Integer> symbolIds = new HashMap<>();
+
+    // references waiting for the declarations of their outermost block to be complete
+    private List<Triple<String, Node, Block>> unresolvedReferences = new ArrayList<>();
+
     boolean inConstructor = false;
 
     public void setInConstructor(final boolean inConstructor) {
@@ -80,40 +146,103 @@ public class IdTracker {
             currentBlocks.peek().addUsage(name, n);
     }
 
+    void addReference(String name, Node n) {
+        if (!currentBlocks.empty())
+            unresolvedReferences.add(Triple.of(name, n, currentBlocks.peek()));
+    }
+
+    private void resolveReferences() {
+        for (Triple<String, Node, Block> reference : unresolvedReferences) {
+            int id = idOf(reference.getMiddle());
+            bindings[id] = findDeclarationNodeFor(reference.getLeft(), Optional.of(reference.getRight())).orElse(null);
+            flags[id] |= BOUND;
+        }
+        unresolvedReferences.clear();
+    }
+
+    /**
+     * give the nodes of the compilation unit dense ids, so that their attributes can be kept in arrays.
+     */
+    void numberNodes(Node root) {
+        nodeIds.number(root);
+        ensureCapacity(nodeIds.size());
+    }
+
+    private int idOf(Node n) {
+        int id = nodeIds.idOf(n);
+        if (id >= flags.length) {
+            ensureCapacity(Math.max(id + 1, flags.length * 2));
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > flags.length) {
+            types = Arrays.copyOf(types, size);
+            innerMostBlocks = Arrays.copyOf(innerMostBlocks, size);
+            bindings = Arrays.copyOf(bindings, size);
+            flags = Arrays.copyOf(flags, size);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Pair<TypeDescription, Node>[] newBindings(int size) {
+        return new Pair[size];
+    }
+
     void pushBlock(Node n) {
         Block block;
         if (!currentBlocks.isEmpty()) {
             Block parent = currentBlocks.peek();
             if(!parent.contains(n)) throw new AssertionError();
-            block = new Block(parent, n);
+            block = new Block(blocks.size() + 1, parent, n);
         } else {
-            block = new Block(n);
+            block = new Block(blocks.size() + 1, n);
         }
         currentBlocks.push(block);
         blocks.add(block);
+        blockIndex = null;
+        if (innerMostBlocksKnown) {
+            for (int i = 0; i < flags.length; i++) {
+                flags[i] &= ~INNER_MOST_BLOCK_KNOWN;
+            }
+            innerMostBlocksKnown = false;
+        }
     }
 
     void popBlock() {
-        currentBlocks.pop();
+        summarizeChanges(currentBlocks.pop());
         if (currentBlocks.isEmpty()) {
-            checkBlockStructure();
+            resolveReferences();
+            if (validationLevel != ValidationLevel.OFF) {
+                String problems = checkBlockStructure(validationLevel);
+                if (!problems.isEmpty()) {
+                    throw new IllegalStateException(problems);
+                }
+            }
         }
     }
 
+    private BlockIndex getBlockIndex() {
+        if (blockIndex == null) {
+            blockIndex = new BlockIndex(blocks);
+        }
+        return blockIndex;
+    }
+
     Optional<Block> findRoot() {
-        return blocks.stream()
-                .sorted((block1, block2) ->
-                        ((Long) block2.size()).compareTo(block1.size()))
-                .findFirst();
+        return getBlockIndex().findRoot();
     }
 
 
     Optional<Block> findInnerMostBlock(Node n) {
-        return blocks.stream()
-                .filter(block -> block.contains(n))
-                .sorted((block1, block2) ->
-                        ((Long) block1.size()).compareTo(block2.size()))
-                .findFirst();
+        int id = idOf(n);
+        if ((flags[id] & INNER_MOST_BLOCK_KNOWN) == 0) {
+            innerMostBlocks[id] = getBlockIndex().findInnerMostBlock(n).orElse(null);
+            flags[id] |= INNER_MOST_BLOCK_KNOWN;
+            innerMostBlocksKnown = true;
+        }
+        return Optional.ofNullable(innerMostBlocks[id]);
     }
 
     boolean willBeChanged(String name, Node n) {
@@ -128,7 +257,14 @@ public class IdTracker {
     }
 
     Optional<Pair<TypeDescription, Node>> findDeclarationNodeFor(String name, Node n) {
-        Optional<Block> block = findInnerMostBlock(n);
+        int id = idOf(n);
+        if ((flags[id] & BOUND) != 0) {
+            return Optional.ofNullable(bindings[id]);
+        }
+        return findDeclarationNodeFor(name, findInnerMostBlock(n));
+    }
+
+    private Optional<Pair<TypeDescription, Node>> findDeclarationNodeFor(String name, Optional<Block> block) {
         do {
             if (block.isPresent()) {
                 final Block b = block.get();
@@ -145,6 +281,10 @@ public class IdTracker {
     }
 
     String checkBlockStructure() {
+        return checkBlockStructure(ValidationLevel.FULL);
+    }
+
+    String checkBlockStructure(ValidationLevel level) {
         StringBuilder sb = new StringBuilder();
         if (!currentBlocks.isEmpty()) {
             sb.append("Blockstack is not empty\n");
@@ -153,17 +293,21 @@ public class IdTracker {
         if (!root.isPresent()) {
             sb.append("No Blockroot descernable\n");
         } else {
-            if (root.get().getId() != 1) {
-                sb.append("Expected Blockroot to have Id 1\n");
+            if (root.get().parentBlock != null) {
+                sb.append("Expected Blockroot to be top level\n");
             }
         }
-        if (blocks.stream().filter(b -> !b.disjunctChildren()).findAny().isPresent()) {
-            sb.append("Found children which are not disjunct\n");
+        int step = level == ValidationLevel.SAMPLED ? ValidationLevel.SAMPLE_RATE : 1;
+        for (int i = 0; i < blocks.size(); i += step) {
+            if (!blocks.get(i).disjunctChildren()) {
+                sb.append("Found children which are not disjunct\n");
+                break;
+            }
         }
         return sb.toString();
     }
 
-    private HashMap<String, List<Node>>  getAll(Function<Block, HashMap<String, List<Node>> > f) {
+    private HashMap<String, List<Node>>  getAll(Function<Block, Map<String, List<Node>> > f) {
         final HashMap<String, List<Node>> res = new HashMap<>();
         blocks.stream()
                 .map(f::apply)
@@ -172,7 +316,7 @@ public class IdTracker {
                             if (res.containsKey(k)) {
                                 res.get(k).addAll(u.get(k));
                             } else  {
-                                res.put(k, u.get(k));
+                                res.put(k, new ArrayList<>(u.get(k)));
                             }
                         }
                 ));
@@ -187,32 +331,46 @@ public class IdTracker {
         return getAll(b -> b.changes);
     }
 
-    private boolean isChangedInSingleBlock(String name, Block b) {
-        if (b.changes.get(name) != null)
-            return true;
-        else
-            return false;
-    }
-
-    private boolean isDeclaredInSingleBlock(String name, Block b) {
-        if (b.declarations.get(name) != null)
-            return true;
-        else
-            return false;
+    private int symbolId(String name) {
+        Integer id = symbolIds.get(name);
+        if (id == null) {
+            id = symbolIds.size();
+            symbolIds.put(name, id);
+        }
+        return id;
     }
 
-    private boolean isChangedInChildrenOfBlock(String name, Block bP) {
-        return bP.children.stream()
-                .filter(child ->
-             !isDeclaredInSingleBlock(name, child)
-               && (isChangedInSingleBlock(name, child) || isChangedInChildrenOfBlock(name, child)))
-                .findAny().isPresent();
+    /**
+     * summarize the names changed in the block or in children not declaring them again.
+     * Called when the block is popped, so the summaries of the children are already available.
+     */
+    private void summarizeChanges(Block b) {
+        BitSet changed = new BitSet();
+        for (String name : b.changes.keySet()) {
+            changed.set(symbolId(name));
+        }
+        for (Block child : b.children) {
+            changed.or(child.escapingChanges);
+        }
+        b.changedNames = changed;
+        if (b.declarations.isEmpty()) {
+            b.escapingChanges = changed;
+        } else {
+            b.escapingChanges = (BitSet) changed.clone();
+            for (String name : b.declarations.keySet()) {
+                Integer id = symbolIds.get(name);
+                if (id != null) {
+                    b.escapingChanges.clear(id);
+                }
+            }
+        }
     }
 
     public boolean isChanged(String name, Node n) {
         Optional<Block> b = findInnerMostBlock(n);
-        if (b.isPresent()) {
-            return isChangedInSingleBlock(name, b.get()) || isChangedInChildrenOfBlock(name, b.get());
+        Integer id = symbolIds.get(name);
+        if (b.isPresent() && id != null && b.get().changedNames != null) {
+            return b.get().changedNames.get(id);
         }
         return false;
     }
@@ -237,17 +395,22 @@ public class IdTracker {
         this.hasThrows.add(name);
     }
 
-    public void putType(Node n, Class clazz) {
-        Class existing = getType(n);
+    /**
+     * @return if the type of the node changed, it is set if not known yet and widened from discrete to float.
+     */
+    public boolean putType(Node n, Class clazz) {
+        int id = idOf(n);
+        Class existing = types[id];
         if (existing == null)
-            types.put(n,clazz);
+            types[id] = clazz;
         else {
             if (clazz.isPrimitive()) {
                 if (isDiscrete(existing) && isFloat(clazz)) {  // propagate discrete to float
-                    types.put(n,clazz);
+                    types[id] = clazz;
                 }
             }
         }
+        return types[id] != existing;
     }
 
     public boolean isDiscrete(final Node n) {
@@ -264,20 +427,31 @@ public class IdTracker {
     }
 
     public boolean isFloat(final Class clazz) {
-        if (clazz == null)
-            return false;
-        return clazz.equals(Float.TYPE) || clazz.equals(Double.TYPE) ||
-               clazz.equals(Float.class) || clazz.equals(Double.class) || clazz.getTypeName().equals("float") || clazz.getTypeName().equals("double") ;
+        return TypeKind.of(clazz) == TypeKind.FLOAT;
     }
+
     public boolean isDiscrete(final Class clazz) {
-        if (clazz == null)
-            return false;
-        return clazz.equals(Integer.TYPE) || clazz.equals(Long.TYPE) || clazz.equals(Byte.TYPE) || clazz.equals(Short.TYPE) ||
-       clazz.equals(Integer.class) || clazz.equals(Long.class) || clazz.equals(Byte.class) || clazz.equals(Short.class);
+        return TypeKind.of(clazz) == TypeKind.DISCRETE;
     }
 
     public Class getType(Node n) {
-        return types.get(n);
+        return types[idOf(n)];
+    }
+
+    /**
+     * @return if the node is in a float context as marked by the TypeTrackerVisitor, null if not marked.
+     */
+    Boolean getFloatContext(Node n) {
+        byte f = flags[idOf(n)];
+        if ((f & FLOAT_CONTEXT_KNOWN) == 0) {
+            return null;
+        }
+        return (f & FLOAT_CONTEXT) != 0;
+    }
+
+    void setFloatContext(Node n, boolean isFloat) {
+        int id = idOf(n);
+        flags[id] |= isFloat ? FLOAT_CONTEXT_KNOWN | FLOAT_CONTEXT : FLOAT_CONTEXT_KNOWN;
     }
 
 }
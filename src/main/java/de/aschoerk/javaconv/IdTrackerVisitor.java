@@ -1,10 +1,6 @@
 package de.aschoerk.javaconv;
 
-import java.lang.reflect.Method;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -18,6 +14,7 @@ import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.body.VariableDeclaratorId;
 import com.github.javaparser.ast.comments.Comment;
 import com.github.javaparser.ast.expr.*;
@@ -37,10 +34,21 @@ import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
  */
 public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
 
+    private final ClassLookup classLookup;
+
     private boolean inAssignTarget = false;
 
+    public IdTrackerVisitor() {
+        this(ClassLookup.getDefault());
+    }
+
+    public IdTrackerVisitor(final ClassLookup classLookup) {
+        this.classLookup = classLookup;
+    }
+
     @Override
     public void visit(final CompilationUnit n, final IdTracker arg) {
+        arg.numberNodes(n);
         visitComment(n.getComment(), arg);
         if (n.getPackage() != null) {
             arg.setPackageName(n.getPackage().getPackageName());
@@ -52,6 +60,7 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
                 i.accept(this, arg);
             }
         }
+        arg.setImportTable(new ImportTable(arg.getPackageName(), arg.getImports()));
         if (n.getTypes() != null) {
             for (final TypeDeclaration typeDeclaration : n.getTypes()) {
                 typeDeclaration.accept(this, arg);
@@ -148,41 +157,20 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
     public void visit(MethodCallExpr n, IdTracker arg) {
         if (n.getScope() instanceof NameExpr) {
             NameExpr ne = (NameExpr)n.getScope();
-            Class clazz = identifyaClass(arg, ne.getName());
-            if (clazz != null) {
-                String methodName = n.getName();
-                Method[] ms = clazz.getMethods();
-                Set<Method> candidates = new HashSet<>();
-                for (Method m : ms) {
-                    if(m.getName().equals(methodName)) {
-                        candidates.add(m);
-                    }
-                }
-                Method resulting = null;
-                if(candidates.size() == 1) {
-                    resulting = candidates.iterator().next();
-                }
-                else {
-                    List<Method> matching = candidates.stream().filter(
-                            m -> m.getParameterCount() == n.getArgs().size()
-                                    || m.isVarArgs() && m.getParameterCount() <= n.getArgs().size()
-                    ).collect(Collectors.toList());
-                    if(matching.size() == 1) {
-                        resulting = matching.get(0);
-                    }
-                }
-                if (resulting != null) {
-                    for (int i = 0; i < resulting.getParameterCount(); i++) {
-
-                        java.lang.reflect.Parameter p = resulting.getParameters()[i];
-                        if (n.getArgs().size() > i) {
-                            arg.putType(n.getArgs().get(i), p.getType());
-                        }
+            String className = identifyaClass(arg, ne.getName());
+            if (className != null) {
+                Class<?>[] parameterTypes = classLookup.parameterTypesFor(className, n.getName(), n.getArgs().size());
+                if (parameterTypes != null) {
+                    for (int i = 0; i < parameterTypes.length && i < n.getArgs().size(); i++) {
+                        arg.putType(n.getArgs().get(i), parameterTypes[i]);
                     }
                 }
             }
 
         }
+        if (n.getScope() == null) {
+            arg.addReference(n.getName(), n);
+        }
         arg.addUsage(n.getName(),n);
         super.visit(n, arg);
     }
@@ -204,6 +192,7 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
 
     @Override
     public void visit(NameExpr n, IdTracker arg) {
+        arg.addReference(n.getName(), n);
         if (inAssignTarget) {
             arg.addChange(n.getName(), n);
         } else {
@@ -223,25 +212,49 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
     @Override
     public void visit(final VariableDeclarationExpr n, final IdTracker arg) {
         TypeDescription typeDescr = getTypeDescription(arg, n.getType());
-        String type = getNameOfType(n.getType());
 
         if (typeDescr != null && arg.isFloat(typeDescr.getClazz())) {
             arg.putType(n, typeDescr.getClazz());
-            if (typeDescr.getArrayCount() > 0) {
-                try {
-                    Node initializer = n.getChildrenNodes().get(1).getChildrenNodes().get(1);
-                    if (!(initializer instanceof MethodCallExpr)) {
-                        List<Node> nodes = initializer.getChildrenNodes();
-                        for (Node child : nodes) {
-                            arg.putType(child, Double.TYPE);
+            typeFloatArrayInitializers(typeDescr, n.getVars(), arg);
+        }
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(final FieldDeclaration n, final IdTracker arg) {
+        TypeDescription typeDescr = getTypeDescription(arg, n.getType());
+
+        if (typeDescr != null && arg.isFloat(typeDescr.getClazz())) {
+            typeFloatArrayInitializers(typeDescr, n.getVariables(), arg);
+        }
+        super.visit(n, arg);
+    }
+
+    /**
+     * types the initializers of float arrays as a whole, their values are in a float context then. Only values not
+     * being numeric literals are typed one by one.
+     */
+    private void typeFloatArrayInitializers(TypeDescription typeDescr, List<VariableDeclarator> vars, IdTracker arg) {
+        if (typeDescr.getArrayCount() == 0) {
+            return;
+        }
+        for (VariableDeclarator var : vars) {
+            Expression init = var.getInit();
+            if (init instanceof ArrayCreationExpr) {
+                init = ((ArrayCreationExpr) init).getInitializer();
+            }
+            if (init instanceof ArrayInitializerExpr) {
+                arg.putType(init, typeDescr.getClazz());
+                List<Expression> values = ((ArrayInitializerExpr) init).getValues();
+                if (values != null) {
+                    for (Expression value : values) {
+                        if (!NodeEvaluator.isNumericLiteral(value)) {
+                            arg.putType(value, Double.TYPE);
                         }
                     }
-                } catch (RuntimeException re) {
-
                 }
             }
         }
-        super.visit(n, arg);
     }
 
 
@@ -285,7 +298,8 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
 
     private TypeDescription getTypeDescription(final IdTracker arg, final Type t) {
         String name = getNameOfType(t);
-        Class clazz = identifyaClass(arg, name);
+        String className = identifyaClass(arg, name);
+        Class clazz = className == null ? null : classLookup.typeOf(className);
         if (t instanceof ReferenceType) {
             ReferenceType rtype = (ReferenceType)t;
             if (clazz == null) {
@@ -304,30 +318,15 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
         }
     }
 
-    private Class identifyaClass(final IdTracker arg, final String name) {
-        Class clazz = null;
-        if (name != null) {
-            for (Import i : arg.getImports()) {
-                if (!i.isStaticImport()) {
-                    if(i.isWildcardImport()) {
-                        clazz = forName(i.getImportString() + "." + name);
-                    }
-                    else {
-                        if(i.getImportString().endsWith("." + name)) {
-                            final String importString = i.getImportString();
-                            clazz = forName(importString);
-                        }
-                    }
-                }
-            }
-            if (clazz == null) {
-                clazz = forName("java.lang." + name);
-            }
-            if (clazz == null) {
-                clazz = forName(arg.getPackageName() + "." + name);
-            }
+    /**
+     * @return the fully qualified name of the class the simple name refers to, null if not known.
+     */
+    private String identifyaClass(final IdTracker arg, final String name) {
+        if (name == null) {
+            return null;
         }
-        return clazz;
+        return ClassResolutionCache.getShared().resolve(classLookup, arg.getImportContext(), name,
+                n -> arg.getImportTable().resolve(n, classLookup));
     }
 
     private Class getPotentialPrimitiveType(final Type t) {
@@ -348,16 +347,6 @@ public class IdTrackerVisitor extends VoidVisitorAdapter<IdTracker> {
         return null;
     }
 
-    private Class forName(final String importString) {
-        Class clazz = null;
-        try {
-            clazz = Class.forName(importString);
-        } catch (ClassNotFoundException e) {
-            ;
-        }
-        return clazz;
-    }
-
     @Override
     public void visit(VariableDeclaratorId n, IdTracker arg) {
         boolean isField = n.getParentNode().getParentNode() instanceof FieldDeclaration;
@@ -0,0 +1,31 @@
+package de.aschoerk.javaconv;
+
+import java.util.function.Function;
+
+/**
+ * Remembers how java identifiers were translated to rust identifiers. Shared by all conversions, so names used over
+ * and over, like loop variables or fields, are translated only once.
+ *
+ * @author aschoerk
+ */
+public class IdentifierCache extends BoundedCache<String, String> {
+
+    private static final IdentifierCache shared = new IdentifierCache(50000);
+
+    public IdentifierCache(final int maxSize) {
+        super(maxSize);
+    }
+
+    public static IdentifierCache getShared() {
+        return shared;
+    }
+
+    /**
+     * @param name       the java identifier
+     * @param translator called if the name has not been translated before, must always return the same for a name
+     * @return the translated identifier
+     */
+    public String translate(final String name, final Function<String, String> translator) {
+        return get(name, translator);
+    }
+}
@@ -0,0 +1,58 @@
+package de.aschoerk.javaconv;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The imports of a compilation unit prepared for the resolution of simple type names: single type imports by
+ * their simple name and the packages imported on demand in order of declaration.
+ *
+ * @author aschoerk
+ */
+class ImportTable {
+
+    private final String packageName;
+    private final HashMap<String, String> singleTypeImports = new HashMap<>();
+    private final List<String> wildcardPackages = new ArrayList<>();
+
+    ImportTable(final String packageName, final List<Import> imports) {
+        this.packageName = packageName;
+        for (Import i : imports) {
+            if (!i.isStaticImport()) {
+                if (i.isWildcardImport()) {
+                    wildcardPackages.add(i.getImportString() + ".");
+                } else {
+                    String importString = i.getImportString();
+                    singleTypeImports.put(importString.substring(importString.lastIndexOf('.') + 1), importString);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the fully qualified name of the class, searched for in the single type imports, the packages
+     * imported on demand, java.lang and the package of the compilation unit. null if not found.
+     */
+    String resolve(final String name, final ClassLookup classLookup) {
+        String className = singleTypeImports.get(name);
+        if (className != null && classLookup.exists(className)) {
+            return className;
+        }
+        for (String wildcardPackage : wildcardPackages) {
+            className = wildcardPackage + name;
+            if (classLookup.exists(className)) {
+                return className;
+            }
+        }
+        className = "java.lang." + name;
+        if (classLookup.exists(className)) {
+            return className;
+        }
+        className = packageName + "." + name;
+        if (classLookup.exists(className)) {
+            return className;
+        }
+        return null;
+    }
+}
@@ -2,32 +2,201 @@ package de.aschoerk.javaconv;
 
 import static de.aschoerk.javaconv.PartParser.createCompilationUnit;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+
 import com.github.javaparser.ParseException;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 
 
 public class JavaConverter {
 
+    private ValidationLevel validationLevel = ValidationLevel.OFF;
+
+    private int nestingLimit = 0;
+
+    private ForkJoinPool parsePool = null;
+
+    private boolean fastPath = true;
+
+    public JavaConverter() {
+    }
+
+    public JavaConverter(final ValidationLevel validationLevel) {
+        this.validationLevel = validationLevel;
+    }
+
+    public ValidationLevel getValidationLevel() {
+        return validationLevel;
+    }
+
+    /**
+     * @param validationLevel how thoroughly the block structure found in the source is checked, OFF by default.
+     */
+    public void setValidationLevel(final ValidationLevel validationLevel) {
+        this.validationLevel = validationLevel;
+    }
+
+    public int getNestingLimit() {
+        return nestingLimit;
+    }
+
+    /**
+     * @param nestingLimit the deepest nesting of the syntax tree converted, deeper sources are rejected with a
+     *                     NestingTooDeepException before they are analysed. 0, the default, for no limit.
+     */
+    public void setNestingLimit(final int nestingLimit) {
+        this.nestingLimit = nestingLimit;
+    }
+
+    public ForkJoinPool getParsePool() {
+        return parsePool;
+    }
+
+    /**
+     * @param parsePool the pool large compilation units are parsed on member by member, null, the default, to parse
+     *                  each source as a whole.
+     */
+    public void setParsePool(final ForkJoinPool parsePool) {
+        this.parsePool = parsePool;
+    }
+
+    public boolean isFastPath() {
+        return fastPath;
+    }
+
+    /**
+     * @param fastPath if snippets consisting only of simple declarations are converted from their tokens, without
+     *                 parsing and analysing them. The output is the same, true by default.
+     */
+    public void setFastPath(final boolean fastPath) {
+        this.fastPath = fastPath;
+    }
+
     public static String convert2Rust(String javaString) {
         return new JavaConverter().convert(javaString);
     }
 
 
     public String convert(String javaString) {
+        String simple = convertSimple(javaString);
+        if (simple != null) {
+            return simple;
+        }
         try {
-            CompilationUnit  compilationUnit = createCompilationUnit(javaString);
-            IdTrackerVisitor idTrackerVisitor = new IdTrackerVisitor();
-            IdTracker idTracker = new IdTracker();
-            idTrackerVisitor.visit(compilationUnit, idTracker);
-            TypeTrackerVisitor typeTrackerVisitor = new TypeTrackerVisitor(idTracker);
-            typeTrackerVisitor.visit(compilationUnit, null);
-
-            RustDumpVisitor dumper = new RustDumpVisitor(true, idTracker, typeTrackerVisitor);
-            dumper.visit(compilationUnit, null);
+            RustDumpVisitor dumper = dump(createCompilationUnit(javaString, parsePool), null);
             return dumper.getSource();
         } catch (ParseException e) {
             return e.toString();
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Converts the java source read from in, each top level type is written to out as soon as it is converted.
+     * A parse error is written to out instead of the conversion like convert(String) returns it.
+     *
+     * @throws IOException if reading in or writing out fails
+     * @throws NestingTooDeepException if a nesting limit is set and the source is nested deeper
+     */
+    public void convert(Reader in, Appendable out) throws IOException {
+        convert(PartParser.read(in), out);
+    }
+
+    /**
+     * Converts the source already read like convert(Reader, Appendable).
+     */
+    void convert(CharSequence javaString, Appendable out) throws IOException {
+        try {
+            String simple = convertSimple(javaString);
+            if (simple != null) {
+                out.append(simple);
+                return;
+            }
+            dump(createCompilationUnit(javaString, parsePool), out);
+        } catch (ParseException e) {
+            out.append(e.toString());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Converts the java source file like convert(Reader, Appendable), the file is memory mapped and decoded once.
+     *
+     * @throws IOException if the file can not be read or is not encoded in the charset, or writing out fails
+     */
+    public void convert(Path in, Charset charset, Appendable out) throws IOException {
+        try {
+            dump(createCompilationUnit(in, charset, parsePool), out);
+        } catch (ParseException e) {
+            out.append(e.toString());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void convert2Rust(Reader in, Appendable out) throws IOException {
+        new JavaConverter().convert(in, out);
+    }
+
+    /**
+     * @return the conversion by the SimpleSnippetConverter, null if it is off, the snippet is not simple or might be
+     * nested deeper than the nesting limit.
+     */
+    private String convertSimple(CharSequence javaString) {
+        if (!fastPath || nestingLimit > 0 && nestingLimit < SimpleSnippetConverter.MAX_DEPTH) {
+            return null;
+        }
+        return SimpleSnippetConverter.convert(javaString);
+    }
+
+    private RustDumpVisitor dump(CompilationUnit compilationUnit, Appendable sink) {
+        checkNesting(compilationUnit);
+        AnalysisVisitor analysisVisitor = new AnalysisVisitor();
+        IdTracker idTracker = new IdTracker();
+        idTracker.setValidationLevel(validationLevel);
+        analysisVisitor.visit(compilationUnit, idTracker);
+
+        RustDumpVisitor dumper = new RustDumpVisitor(true, idTracker, analysisVisitor.getTypeTracker());
+        dumper.setSink(sink);
+        dumper.visit(compilationUnit, null);
+        return dumper;
+    }
+
+    /**
+     * @throws NestingTooDeepException if the tree is nested deeper than the limit. The depth is determined without
+     * recursion, so that the check itself can not exhaust the stack.
+     */
+    private void checkNesting(Node root) {
+        if (nestingLimit <= 0) {
+            return;
+        }
+        Deque<Node> nodes = new ArrayDeque<>();
+        int[] depths = new int[64];
+        nodes.push(root);
+        depths[0] = 1;
+        while (!nodes.isEmpty()) {
+            Node n = nodes.pop();
+            int depth = depths[nodes.size()];
+            if (depth > nestingLimit) {
+                throw new NestingTooDeepException(depth, nestingLimit, n.getRange().begin.line);
+            }
+            for (Node child : n.getChildrenNodes()) {
+                if (nodes.size() == depths.length) {
+                    depths = Arrays.copyOf(depths, depths.length * 2);
+                }
+                depths[nodes.size()] = depth + 1;
+                nodes.push(child);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+package de.aschoerk.javaconv;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseException;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+
+/**
+ * Parses a compilation unit member by member on a fork/join pool. A brace aware scanner splits the bodies of the top
+ * level classes and interfaces at member boundaries, groups of members are parsed in parallel, each in a class of
+ * its own, while the skeleton, the unit with the members blanked out, is parsed by the calling thread. The members
+ * are moved into the types of the skeleton in source order, their lines are shifted to the lines of the source, so
+ * the result can not be told from the compilation unit parsed as a whole.
+ *
+ * @author aschoerk
+ */
+class MemberParser {
+
+    private static final int MIN_GROUP_LENGTH = 4096;
+
+    /**
+     * the body of a top level class or interface and the begin and end offsets of its members.
+     */
+    private static class Body {
+        final String keyword;
+        final List<int[]> members = new ArrayList<>();
+
+        Body(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    /**
+     * consecutive members of one body, parsed together.
+     */
+    private static class Group {
+        final String source;
+        final int lineOffset;
+
+        Group(String source, int lineOffset) {
+            this.source = source;
+            this.lineOffset = lineOffset;
+        }
+    }
+
+    private final String src;
+    private int pos = 0;
+    private int line = 1;
+    private int lineOffset = 0;
+    private final List<Body> bodies = new ArrayList<>();
+
+    private MemberParser(CharSequence src) {
+        this.src = src.toString();
+    }
+
+    /**
+     * @return the compilation unit or null, if the source has too few members to be split, can not be split or one
+     * of its parts does not parse. The source must then be parsed as a whole, which also reports the parse error.
+     */
+    static CompilationUnit parse(CharSequence src, ForkJoinPool pool) {
+        MemberParser parser = new MemberParser(src);
+        return parser.scan() ? parser.parse(pool) : null;
+    }
+
+    private CompilationUnit parse(ForkJoinPool pool) {
+        int memberLength = 0;
+        for (Body body : bodies) {
+            for (int[] member : body.members) {
+                memberLength += member[1] - member[0];
+            }
+        }
+        int groupLength = Math.max(MIN_GROUP_LENGTH, memberLength / (pool.getParallelism() * 4));
+        List<List<ForkJoinTask<TypeDeclaration>>> tasks = new ArrayList<>();
+        for (Body body : bodies) {
+            List<ForkJoinTask<TypeDeclaration>> bodyTasks = new ArrayList<>();
+            for (Group group : groups(body, groupLength)) {
+                bodyTasks.add(pool.submit(() -> parseGroup(group)));
+            }
+            tasks.add(bodyTasks);
+        }
+        try {
+            CompilationUnit cu = JavaParser.parse(new StringReader(skeleton()));
+            List<TypeDeclaration> types = new ArrayList<>();
+            for (TypeDeclaration type : cu.getTypes()) {
+                if (type instanceof ClassOrInterfaceDeclaration) {
+                    types.add(type);
+                }
+            }
+            if (types.size() != bodies.size()) {
+                return null;
+            }
+            for (int i = 0; i < types.size(); i++) {
+                TypeDeclaration type = types.get(i);
+                List<BodyDeclaration> members = new ArrayList<>();
+                List<Comment> orphans = new ArrayList<>();
+                for (ForkJoinTask<TypeDeclaration> task : tasks.get(i)) {
+                    TypeDeclaration parsed = task.get();
+                    members.addAll(parsed.getMembers());
+                    orphans.addAll(parsed.getOrphanComments());
+                }
+                type.setMembers(members);
+                for (Comment comment : orphans) {
+                    type.addOrphanComment(comment);
+                }
+            }
+            return cu;
+        } catch (ParseException | ExecutionException | StackOverflowError e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (List<ForkJoinTask<TypeDeclaration>> bodyTasks : tasks) {
+                for (ForkJoinTask<TypeDeclaration> task : bodyTasks) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * parses the members in a class of the kind of the body. The group starts with the rest of the line it begins
+     * in, so that the columns need not be shifted.
+     */
+    private static TypeDeclaration parseGroup(Group group) throws ParseException {
+        CompilationUnit cu = JavaParser.parse(new StringReader(group.source));
+        TypeDeclaration type = cu.getTypes().get(0);
+        List<Node> roots = new ArrayList<>(type.getMembers());
+        roots.addAll(type.getOrphanComments());
+        shiftLines(roots, group.lineOffset);
+        return type;
+    }
+
+    private static void shiftLines(List<Node> roots, int offset) {
+        Set<Node> shifted = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> todo = new ArrayDeque<>(roots);
+        while (!todo.isEmpty()) {
+            Node n = todo.pop();
+            if (!shifted.add(n)) {
+                continue;
+            }
+            // nodes without position, the placeholder names javaparser creates, stay at line 0
+            Range range = n.getRange();
+            if (range.begin.line > 0) {
+                n.setRange(range.withBeginLine(range.begin.line + offset).withEndLine(range.end.line + offset));
+            }
+            todo.addAll(n.getChildrenNodes());
+            if (n.getComment() != null) {
+                todo.push(n.getComment());
+            }
+        }
+    }
+
+    private List<Group> groups(Body body, int groupLength) {
+        List<Group> groups = new ArrayList<>();
+        List<int[]> members = body.members;
+        int first = 0;
+        while (first < members.size()) {
+            int last = first;
+            while (last + 1 < members.size() && members.get(last)[1] - members.get(first)[0] < groupLength) {
+                last++;
+            }
+            int begin = members.get(first)[0];
+            int end = members.get(last)[1];
+            int lineStart = begin;
+            while (lineStart > 0 && src.charAt(lineStart - 1) != '\n' && src.charAt(lineStart - 1) != '\r') {
+                lineStart--;
+            }
+            StringBuilder sb = new StringBuilder(end - lineStart + 32);
+            sb.append(body.keyword).append(" A {\n");
+            for (int i = lineStart; i < begin; i++) {
+                sb.append(src.charAt(i) == '\t' ? '\t' : ' ');
+            }
+            sb.append(src, begin, end).append("\n}");
+            groups.add(new Group(sb.toString(), lineOf(begin) - 2));
+            first = last + 1;
+        }
+        return groups;
+    }
+
+    /**
+     * @return the source with the members blanked out, line breaks and tabs are kept.
+     */
+    private String skeleton() {
+        char[] chars = src.toCharArray();
+        for (Body body : bodies) {
+            for (int[] member : body.members) {
+                for (int i = member[0]; i < member[1]; i++) {
+                    if (chars[i] != '\n' && chars[i] != '\r' && chars[i] != '\t') {
+                        chars[i] = ' ';
+                    }
+                }
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * counts the lines from the last offset asked for, the offsets are asked for in ascending order.
+     */
+    private int lineOf(int offset) {
+        for (; lineOffset < offset; lineOffset++) {
+            char c = src.charAt(lineOffset);
+            if (c == '\n' || c == '\r' && (lineOffset + 1 >= src.length() || src.charAt(lineOffset + 1) != '\n')) {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * finds the bodies of the top level classes and interfaces.
+     *
+     * @return true if at least two members were found and the source could be scanned up to its end.
+     */
+    private boolean scan() {
+        String keyword = null;
+        int depth = 0;
+        int parens = 0;
+        int count = 0;
+        while (skip()) {
+            char c = src.charAt(pos);
+            if (Character.isJavaIdentifierStart(c)) {
+                String ident = identifier();
+                if (depth == 0 && parens == 0
+                    && (ident.equals("class") || ident.equals("interface") || ident.equals("enum"))) {
+                    keyword = ident;
+                }
+                continue;
+            }
+            pos++;
+            if (c == '@') {
+                if (skip() && Character.isJavaIdentifierStart(src.charAt(pos)) && identifier().equals("interface")) {
+                    keyword = "@interface";
+                }
+            } else if (c == '(') {
+                parens++;
+            } else if (c == ')') {
+                parens--;
+            } else if (c == '{') {
+                if (depth == 0 && parens == 0 && ("class".equals(keyword) || "interface".equals(keyword))) {
+                    Body body = new Body(keyword);
+                    if (!scanBody(body)) {
+                        return false;
+                    }
+                    bodies.add(body);
+                    count += body.members.size();
+                } else {
+                    depth++;
+                }
+                keyword = null;
+            } else if (c == '}') {
+                depth--;
+            }
+        }
+        return count >= 2 && depth == 0 && parens == 0;
+    }
+
+    /**
+     * splits the body starting at pos into members, a member ends with a semicolon or, if it has a body, which is
+     * not part of an initializer, with the brace closing it. A line comment following on the same line belongs to
+     * the member, since javaparser attributes it to it.
+     *
+     * @return true if the closing brace of the body was found, pos is after it.
+     */
+    private boolean scanBody(Body body) {
+        int begin = pos;
+        int depth = 0;
+        int parens = 0;
+        boolean assigned = false;
+        boolean braced = false;
+        while (skip()) {
+            char c = src.charAt(pos);
+            if (Character.isJavaIdentifierStart(c)) {
+                identifier();
+                continue;
+            }
+            pos++;
+            boolean end = false;
+            if (c == '(') {
+                parens++;
+            } else if (c == ')') {
+                parens--;
+            } else if (c == '=') {
+                assigned |= depth == 0 && parens == 0;
+            } else if (c == '{') {
+                braced |= depth == 0 && parens == 0 && !assigned;
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return true;
+                }
+                depth--;
+                end = depth == 0 && parens == 0 && braced;
+            } else if (c == ';') {
+                end = depth == 0 && parens == 0;
+            }
+            if (end) {
+                skipLineComment();
+                body.members.add(new int[] { begin, pos });
+                begin = pos;
+                assigned = false;
+                braced = false;
+            }
+        }
+        return false;
+    }
+
+    private String identifier() {
+        int start = pos;
+        do {
+            pos++;
+        } while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)));
+        return src.substring(start, pos);
+    }
+
+    private void skipLineComment() {
+        int p = pos;
+        while (p < src.length() && (src.charAt(p) == ' ' || src.charAt(p) == '\t')) {
+            p++;
+        }
+        if (src.startsWith("//", p)) {
+            while (p < src.length() && src.charAt(p) != '\n' && src.charAt(p) != '\r') {
+                p++;
+            }
+            pos = p;
+        }
+    }
+
+    /**
+     * skips whitespace, comments and string and character literals.
+     *
+     * @return true if pos is at a character to be scanned.
+     */
+    private boolean skip() {
+        while (pos < src.length()) {
+            char c = src.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (src.startsWith("//", pos)) {
+                while (pos < src.length() && src.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (src.startsWith("/*", pos)) {
+                int close = src.indexOf("*/", pos + 2);
+                pos = close < 0 ? src.length() : close + 2;
+            } else if (c == '"' || c == '\'') {
+                pos++;
+                while (pos < src.length() && src.charAt(pos) != c && src.charAt(pos) != '\n') {
+                    pos += src.charAt(pos) == '\\' ? 2 : 1;
+                }
+                pos = Math.min(pos + 1, src.length());
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+package de.aschoerk.javaconv;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The public methods of a class grouped by name, computed once per class when it is first needed and shared by
+ * all conversions. Used to find the parameter types a call site passes its arguments to, without having
+ * reflection create fresh Method and Parameter arrays for every call.
+ *
+ * @author aschoerk
+ */
+class MethodSignatureIndex {
+
+    private static final ClassValue<MethodSignatureIndex> indexes = new ClassValue<MethodSignatureIndex>() {
+        @Override
+        protected MethodSignatureIndex computeValue(final Class<?> type) {
+            return new MethodSignatureIndex(type);
+        }
+    };
+
+    private static final Signature[] NO_SIGNATURES = new Signature[0];
+
+    private final Map<String, Signature[]> signatures = new HashMap<>();
+
+    static MethodSignatureIndex of(Class<?> clazz) {
+        return indexes.get(clazz);
+    }
+
+    private MethodSignatureIndex(Class<?> clazz) {
+        Map<String, Set<Method>> byName = new HashMap<>();
+        for (Method m : clazz.getMethods()) {
+            byName.computeIfAbsent(m.getName(), k -> new LinkedHashSet<>()).add(m);
+        }
+        for (Map.Entry<String, Set<Method>> e : byName.entrySet()) {
+            List<Signature> list = new ArrayList<>();
+            for (Method m : e.getValue()) {
+                list.add(new Signature(m.getParameterTypes(), m.isVarArgs()));
+            }
+            signatures.put(e.getKey(), list.toArray(NO_SIGNATURES));
+        }
+    }
+
+    /**
+     * @param methodName name of the called method
+     * @param argCount   number of arguments at the call site
+     * @return the parameter types of the method called, null if there is none or it is ambiguous.
+     */
+    Class<?>[] parameterTypesFor(String methodName, int argCount) {
+        Signature[] candidates = signatures.getOrDefault(methodName, NO_SIGNATURES);
+        if (candidates.length == 1) {
+            return candidates[0].parameterTypes;
+        }
+        Signature resulting = null;
+        for (Signature s : candidates) {
+            if (s.matches(argCount)) {
+                if (resulting != null) {
+                    return null;
+                }
+                resulting = s;
+            }
+        }
+        return resulting == null ? null : resulting.parameterTypes;
+    }
+
+    private static final class Signature {
+        final Class<?>[] parameterTypes;
+        final boolean varArgs;
+
+        Signature(final Class<?>[] parameterTypes, final boolean varArgs) {
+            this.parameterTypes = parameterTypes;
+            this.varArgs = varArgs;
+        }
+
+        boolean matches(int argCount) {
+            return parameterTypes.length == argCount || varArgs && parameterTypes.length <= argCount;
+        }
+    }
+}
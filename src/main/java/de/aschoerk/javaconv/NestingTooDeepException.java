@@ -0,0 +1,40 @@
+package de.aschoerk.javaconv;
+
+/**
+ * Thrown instead of converting a source whose syntax tree is nested deeper than allowed, since the recursive
+ * visitors would exhaust the stack.
+ *
+ * @author aschoerk
+ */
+public class NestingTooDeepException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int depth;
+    private final int limit;
+    private final int line;
+
+    /**
+     * @param depth the depth found, at least limit + 1
+     * @param limit the deepest nesting allowed
+     * @param line  the line of the source where the limit was exceeded, -1 if not known
+     */
+    public NestingTooDeepException(final int depth, final int limit, final int line) {
+        super("nesting depth " + depth + " exceeds limit " + limit + (line >= 0 ? " at line " + line : ""));
+        this.depth = depth;
+        this.limit = limit;
+        this.line = line;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
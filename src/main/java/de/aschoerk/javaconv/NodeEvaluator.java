@@ -6,6 +6,11 @@ import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.ModifierSet;
 import com.github.javaparser.ast.body.VariableDeclaratorId;
+import com.github.javaparser.ast.expr.DoubleLiteralExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
 
 /**
  * Created by aschoerk on 17.05.16.
@@ -32,4 +37,26 @@ public class NodeEvaluator {
         return false;
     }
 
+    /**
+     * @return if n is an integer, long or floating point literal, optionally with sign, without comments.
+     */
+    static boolean isNumericLiteral(Expression n) {
+        Expression literal = unsigned(n);
+        return n.getComment() == null && literal.getComment() == null
+               && (literal instanceof IntegerLiteralExpr || literal instanceof LongLiteralExpr || literal instanceof DoubleLiteralExpr);
+    }
+
+    /**
+     * @return the operand of n if it is a unary plus or minus, n otherwise.
+     */
+    static Expression unsigned(Expression n) {
+        if (n instanceof UnaryExpr) {
+            UnaryExpr u = (UnaryExpr) n;
+            if (u.getOperator() == UnaryExpr.Operator.negative || u.getOperator() == UnaryExpr.Operator.positive) {
+                return u.getExpr();
+            }
+        }
+        return n;
+    }
+
 }
@@ -0,0 +1,53 @@
+package de.aschoerk.javaconv;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.Node;
+
+/**
+ * Gives the nodes of a compilation unit dense int ids. Attributes of nodes can so be held in arrays indexed by these
+ * ids, instead of one identity hash map per attribute. The ids are kept here, not as data of the nodes, so data
+ * attached to the tree by the caller is left alone and ids of an earlier numbering are never taken over.
+ *
+ * @author aschoerk
+ */
+class NodeIds {
+
+    private final Map<Node, Integer> ids = new IdentityHashMap<>();
+
+    /**
+     * number the node and all its descendants not numbered yet in preorder.
+     */
+    void number(Node root) {
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            Node n = todo.pop();
+            idOf(n);
+            List<Node> children = n.getChildrenNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                todo.push(children.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return the id of the node, nodes not numbered yet get the next free one.
+     */
+    int idOf(Node n) {
+        Integer id = ids.get(n);
+        if (id == null) {
+            id = ids.size();
+            ids.put(n, id);
+        }
+        return id;
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
@@ -1,49 +1,184 @@
 package de.aschoerk.javaconv;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseException;
 import com.github.javaparser.ast.CompilationUnit;
 
+import de.aschoerk.javaconv.SnippetClassifier.Wrapper;
+
 /**
  * Created by aschoerk on 03.05.16.
  */
 public class PartParser {
-    static String encapsulateInMethod(String testString) {
-        String res = "class A { void m() { " + testString + "; } }";
-        System.out.println("in Method: " + res);
-        return res;
-    }
 
-    static String encapsulateInClass(String testString) {
-        String res = "class A { " + testString + ";  }";
-        System.out.println("in Class: " + res);
-        return res;
-    }
+    private static final AtomicLong parses = new AtomicLong();
+    private static final AtomicLong fallbacks = new AtomicLong();
 
-    static CompilationUnit createCompilationUnit(String javaString) throws ParseException {
+    /**
+     * sources shorter than this are not split into members, parsing them as a whole is faster.
+     */
+    static final int PARALLEL_MIN_LENGTH = 128 * 1024;
 
-        StringBuffer parseExceptions = new StringBuffer();
+    private static final String METHOD_PREFIX = "class A { void m() { ";
+    private static final String METHOD_SUFFIX = "; } }";
+    private static final String CLASS_PREFIX = "class A { ";
+    private static final String CLASS_SUFFIX = ";  }";
+
+    /**
+     * Parses the snippet once, encapsulated as predicted by the SnippetClassifier. Only if that fails, the other
+     * encapsulations are tried in the order compilation unit, class, method. The source is read in place by each
+     * try, it is neither copied nor encoded.
+     */
+    static CompilationUnit createCompilationUnit(CharSequence javaString) throws ParseException {
+        Wrapper predicted = SnippetClassifier.classify(javaString);
+        parses.incrementAndGet();
+        String[] parseExceptions = new String[Wrapper.values().length];
         try {
-            return tryParse(javaString);
+            return tryParse(javaString, predicted);
         } catch (ParseException|StackOverflowError ex) {
-            parseExceptions.append(ex.getMessage());
-            try {
-                return tryParse(encapsulateInClass(javaString));
-            } catch (ParseException|StackOverflowError ex2) {
-                parseExceptions.append("\nencapsulated in Class\n").append(ex2.getMessage());
+            parseExceptions[predicted.ordinal()] = ex.getMessage();
+        }
+        fallbacks.incrementAndGet();
+        for (Wrapper wrapper : Wrapper.values()) {
+            if (wrapper != predicted) {
                 try {
-                    return tryParse(encapsulateInMethod(javaString));
-                } catch (ParseException|StackOverflowError ex3) {
-                    parseExceptions.append("\nencapsulated in Method\n").append(ex3.getMessage());
-                    throw new ParseException(parseExceptions.toString());
+                    return tryParse(javaString, wrapper);
+                } catch (ParseException|StackOverflowError ex) {
+                    parseExceptions[wrapper.ordinal()] = ex.getMessage();
                 }
             }
         }
+        throw new ParseException(parseExceptions[Wrapper.UNIT.ordinal()]
+                                 + "\nencapsulated in Class\n" + parseExceptions[Wrapper.CLASS_BODY.ordinal()]
+                                 + "\nencapsulated in Method\n" + parseExceptions[Wrapper.METHOD_BODY.ordinal()]);
+    }
+
+    /**
+     * Like createCompilationUnit(CharSequence), but a large compilation unit is parsed member by member on the pool
+     * by the MemberParser.
+     *
+     * @param pool the pool parsing the members, null to parse the source as a whole
+     */
+    static CompilationUnit createCompilationUnit(CharSequence javaString, ForkJoinPool pool) throws ParseException {
+        if (pool != null && javaString.length() >= PARALLEL_MIN_LENGTH
+            && SnippetClassifier.classify(javaString) == Wrapper.UNIT) {
+            CompilationUnit cu = MemberParser.parse(javaString, pool);
+            if (cu != null) {
+                parses.incrementAndGet();
+                return cu;
+            }
+        }
+        return createCompilationUnit(javaString);
+    }
+
+    /**
+     * reads the whole source once, the tries of the encapsulations read it from memory.
+     */
+    static CharSequence read(Reader in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] chunk = new char[8192];
+        int count;
+        while ((count = in.read(chunk)) >= 0) {
+            sb.append(chunk, 0, count);
+        }
+        return sb;
+    }
+
+    /**
+     * maps the file into memory and decodes it once with the charset.
+     *
+     * @throws java.nio.charset.CharacterCodingException if the file is not encoded in the charset
+     */
+    static CompilationUnit createCompilationUnit(Path path, Charset charset, ForkJoinPool pool)
+            throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return createCompilationUnit(charset.newDecoder().decode(bytes), pool);
+        }
+    }
+
+    private static CompilationUnit tryParse(CharSequence javaString, Wrapper wrapper) throws ParseException {
+        switch (wrapper) {
+            case CLASS_BODY:
+                return JavaParser.parse(new SnippetReader(CLASS_PREFIX, javaString, CLASS_SUFFIX));
+            case METHOD_BODY:
+                return JavaParser.parse(new SnippetReader(METHOD_PREFIX, javaString, METHOD_SUFFIX));
+            default:
+                return JavaParser.parse(new SnippetReader("", javaString, ""));
+        }
+    }
+
+    /**
+     * @return the number of snippets parsed.
+     */
+    public static long getParses() {
+        return parses.get();
+    }
+
+    /**
+     * @return the number of snippets not parsing as predicted, including those not parsing at all.
+     */
+    public static long getFallbacks() {
+        return fallbacks.get();
     }
 
-    static CompilationUnit tryParse(String javaString) throws ParseException {
-        return JavaParser.parse(new ByteArrayInputStream(javaString.getBytes()));
+    public static double getFallbackRate() {
+        long count = parses.get();
+        return count == 0 ? 0.0 : (double) fallbacks.get() / count;
+    }
+
+    /**
+     * reads a snippet between a prefix and a suffix without concatenating them.
+     */
+    private static class SnippetReader extends Reader {
+
+        private final CharSequence[] parts;
+        private int part = 0;
+        private int pos = 0;
+
+        SnippetReader(CharSequence prefix, CharSequence snippet, CharSequence suffix) {
+            this.parts = new CharSequence[] { prefix, snippet, suffix };
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int count = 0;
+            while (count < len && part < parts.length) {
+                CharSequence current = parts[part];
+                if (pos >= current.length()) {
+                    part++;
+                    pos = 0;
+                } else {
+                    int n = Math.min(len - count, current.length() - pos);
+                    if (current instanceof String) {
+                        ((String) current).getChars(pos, pos + n, cbuf, off + count);
+                    } else {
+                        for (int i = 0; i < n; i++) {
+                            cbuf[off + count + i] = current.charAt(pos + i);
+                        }
+                    }
+                    pos += n;
+                    count += n;
+                }
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+        }
     }
 }
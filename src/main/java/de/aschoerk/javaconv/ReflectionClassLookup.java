@@ -0,0 +1,68 @@
+package de.aschoerk.javaconv;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up classes by loading them into the running JVM, without initializing them, so no static initializer of a
+ * class named in a converted source is run. Used if no symbol index is available, and for the JDK classes not in
+ * the index.
+ *
+ * @author aschoerk
+ */
+public class ReflectionClassLookup implements ClassLookup {
+
+    private final ClassLoader loader;
+
+    // only classes found are kept here, misses are remembered by the ClassResolutionCache
+    private final ConcurrentHashMap<String, Class> loaded = new ConcurrentHashMap<>();
+
+    public ReflectionClassLookup() {
+        this(ReflectionClassLookup.class.getClassLoader());
+    }
+
+    /**
+     * @param loader the loader the classes are loaded by, null for the bootstrap loader
+     */
+    public ReflectionClassLookup(final ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return a lookup knowing only the classes of the JDK, neither those of the application nor of its libraries.
+     */
+    public static ReflectionClassLookup forJdk() {
+        return new ReflectionClassLookup(ClassLoader.getSystemClassLoader().getParent());
+    }
+
+    @Override
+    public boolean exists(final String className) {
+        return forName(className) != null;
+    }
+
+    @Override
+    public Class typeOf(final String className) {
+        return forName(className);
+    }
+
+    @Override
+    public Class<?>[] parameterTypesFor(final String className, final String methodName, final int argCount) {
+        Class clazz = forName(className);
+        if (clazz == null) {
+            return null;
+        }
+        return MethodSignatureIndex.of(clazz).parameterTypesFor(methodName, argCount);
+    }
+
+    private Class forName(final String className) {
+        Class clazz = loaded.get(className);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(className, false, loader);
+                loaded.put(className, clazz);
+            } catch (ClassNotFoundException | LinkageError e) {
+                ;
+            }
+        }
+        return clazz;
+    }
+}
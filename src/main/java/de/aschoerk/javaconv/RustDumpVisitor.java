@@ -1,13 +1,17 @@
 package de.aschoerk.javaconv;
 
-import static com.github.javaparser.PositionUtils.sortByBeginPosition;
 import static com.github.javaparser.ast.internal.Utils.isNullOrEmpty;
 import static java.util.Collections.reverse;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -145,6 +149,8 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
     private final IdTracker idTracker;
     private final TypeTrackerVisitor typeTracker;
 
+    private CommentPlacement commentPlacement;
+
     boolean commentOut = false;
     private boolean printComments;
 
@@ -166,26 +172,53 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         return printer.getSource();
     }
 
+    /**
+     * @param sink receives the output of each top level type as soon as it is printed, getSource() then only returns
+     *             what was not flushed yet.
+     */
+    public void setSink(Appendable sink) {
+        printer.setSink(sink);
+    }
+
     private String toSnakeIfNecessary(String n) {
+        return IdentifierCache.getShared().translate(n, RustDumpVisitor::translateName);
+    }
+
+    /**
+     * @return the rust name for a java name: mapped constants are replaced, names starting lower case are converted
+     * to snake case.
+     */
+    static String translateName(String n) {
         if (namesMap.containsKey(n)) {
             n = namesMap.get(n);
         }
-        String name = n;
-        if (Character.isLowerCase(name.charAt(0))) {
-            StringBuilder sb = new StringBuilder();
-            for (Character c : name.toCharArray()) {
-                if (Character.isUpperCase(c)) {
-                    sb.append("_").append(Character.toLowerCase(c));
-                } else {
-                    sb.append(c);
-                }
+        if (!Character.isLowerCase(n.charAt(0))) {
+            return n;
+        }
+        int upper = 0;
+        for (int i = 0; i < n.length(); i++) {
+            if (Character.isUpperCase(n.charAt(i))) {
+                upper++;
+            }
+        }
+        if (upper == 0) {
+            return n;
+        }
+        char[] snake = new char[n.length() + upper];
+        int j = 0;
+        for (int i = 0; i < n.length(); i++) {
+            char c = n.charAt(i);
+            if (Character.isUpperCase(c)) {
+                snake[j++] = '_';
+                snake[j++] = Character.toLowerCase(c);
+            } else {
+                snake[j++] = c;
             }
-            return sb.toString();
         }
-        return n;
+        return new String(snake);
     }
 
-    private String removePlusAndSuffix(String value, CharSequence... searchStrings) {
+    static String removePlusAndSuffix(String value, CharSequence... searchStrings) {
         if (value.startsWith("+")) {
             value = value.substring(1);
         }
@@ -328,6 +361,7 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
 
     @Override
     public void visit(final CompilationUnit n, final Object arg) {
+        commentPlacement = new CommentPlacement(n);
         printJavaComment(n.getComment(), arg);
 
         if (n.getPackage() != null) {
@@ -355,10 +389,12 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
                 if (i.hasNext()) {
                     printer.printLn();
                 }
+                printer.flush();
             }
         }
 
         printOrphanCommentsEnding(n);
+        printer.flush();
     }
 
     @Override
@@ -789,15 +825,56 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
             }
             printer.print("vec![");
 
-            for (Expression val : n.getValues()) {
-                val.accept(this, null);
-                printer.print(", ");
+            if (!printNumericLiterals(n)) {
+                for (Expression val : n.getValues()) {
+                    val.accept(this, null);
+                    printer.print(", ");
+                }
             }
             printer.printLn("]");
 
         }
     }
 
+    /**
+     * prints the values of an initializer consisting only of numeric literals straight to the output, without
+     * visiting them one by one. The float context is looked up once for the whole initializer.
+     *
+     * @return false and prints nothing if a value is not a numeric literal.
+     */
+    private boolean printNumericLiterals(final ArrayInitializerExpr n) {
+        boolean containsFloat = false;
+        for (Expression val : n.getValues()) {
+            if (!NodeEvaluator.isNumericLiteral(val)) {
+                return false;
+            }
+            containsFloat |= NodeEvaluator.unsigned(val) instanceof DoubleLiteralExpr;
+        }
+        boolean asFloat = containsFloat || Boolean.TRUE.equals(idTracker.getFloatContext(n));
+        for (Expression val : n.getValues()) {
+            if (val instanceof UnaryExpr && ((UnaryExpr) val).getOperator() == UnaryExpr.Operator.negative) {
+                printer.print("-");
+            }
+            Expression literal = NodeEvaluator.unsigned(val);
+            if (literal instanceof DoubleLiteralExpr) {
+                printer.print(doubleLiteral(((DoubleLiteralExpr) literal).getValue()));
+            } else if (literal instanceof IntegerLiteralMinValueExpr || literal instanceof LongLiteralMinValueExpr) {
+                printer.print(removePlusAndSuffix(((StringLiteralExpr) literal).getValue(), "l", "L"));
+                if (asFloat) {
+                    printer.print(".0");
+                }
+            } else if (literal instanceof LongLiteralExpr) {
+                String value = removePlusAndSuffix(((LongLiteralExpr) literal).getValue(), "l", "L");
+                printer.print(asFloat ? floatLiteral(value, true) : value);
+            } else {
+                String value = removePlusAndSuffix(((IntegerLiteralExpr) literal).getValue());
+                printer.print(asFloat ? floatLiteral(value) : value);
+            }
+            printer.print(", ");
+        }
+        return true;
+    }
+
     String defaultValue(String type) {
 
         switch (type) {
@@ -993,51 +1070,69 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         n.getRight().accept(this, arg);
     }
 
+    /**
+     * @return the operands of the chain of + starting at n, in source order. Walks the tree with an explicit stack, so
+     * long chains are neither copied per level nor exhaust the java stack.
+     */
     List<Node> genStringExprSequence(BinaryExpr n) {
         List<Node> result = new ArrayList<>();
-        if (n.getOperator() == BinaryExpr.Operator.plus) {
-            genStringPart(n.getLeft(), result);
-            genStringPart(n.getRight(), result);
-        } else {
-            result.add(n);
-            return result;
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(n);
+        while (!todo.isEmpty()) {
+            Node part = todo.pop();
+            if (part instanceof BinaryExpr && ((BinaryExpr) part).getOperator() == BinaryExpr.Operator.plus) {
+                todo.push(((BinaryExpr) part).getRight());
+                todo.push(((BinaryExpr) part).getLeft());
+            } else {
+                result.add(part);
+            }
         }
-
-
         return result;
     }
 
-    private void genStringPart(Node n, List<Node> result) {
-        if (n instanceof BinaryExpr) {
-            result.addAll(genStringExprSequence(((BinaryExpr)n)));
-        } else {
-            result.add(n);
-        }
-    }
-
     private void printStringExpression(BinaryExpr n, final Object arg) {
         List<Node> binChain = genStringExprSequence(n);
+        Node[] args = new Node[binChain.size()];
+        int argCount = 0;
         printer.print("format!(\"");
         for (Node node: binChain) {
             if (node instanceof StringLiteralExpr) {
-                String value = ((StringLiteralExpr) node).getValue();
-                printer.print(value);
+                printer.print(escapeFormat(((StringLiteralExpr) node).getValue()));
             } else {
                 printer.print("{}");
+                if (node != n) {
+                    args[argCount++] = node;
+                }
             }
         }
         printer.print("\"");
 
-        for (Node node: binChain) {
-            if (!(node instanceof StringLiteralExpr) && node != n) {
-                printer.print(", ");
-                node.accept(this,arg);
-            }
+        for (int i = 0; i < argCount; i++) {
+            printer.print(", ");
+            args[i].accept(this,arg);
         }
         printer.print(")");
 
     }
 
+    /**
+     * @return the literal with { and } doubled, so format! does not take them as placeholders.
+     */
+    private static String escapeFormat(String literal) {
+        if (literal.indexOf('{') < 0 && literal.indexOf('}') < 0) {
+            return literal;
+        }
+        StringBuilder sb = new StringBuilder(literal.length() + 8);
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '{' || c == '}') {
+                sb.append(c);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
     @Override
     public void visit(final CastExpr n, final Object arg) {
         printJavaComment(n.getComment(), arg);
@@ -1087,10 +1182,8 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         printJavaComment(n.getComment(), arg);
         int mark = printer.push();
         n.getScope().accept(this, arg);
-        String scope = printer.getMark(mark);
+        String accessed = printer.getLastToken(mark);
         printer.drop();
-        int i = StringUtils.lastIndexOfAny(StringUtils.stripEnd(scope," "), "\n", "\t", " ", ".");
-        String accessed = i <= 0 ? scope : scope.substring(i + 1);
         if (Character.isUpperCase(accessed.charAt(0)) && accessed.length() > 1 && Character.isLowerCase(accessed.charAt(1))) {
             printer.print("::");
         } else {
@@ -1118,57 +1211,57 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
     @Override
     public void visit(final DoubleLiteralExpr n, final Object arg) {
         printJavaComment(n.getComment(), arg);
-        String value = n.getValue();
-        if (!StringUtils.containsAny(value, '.', 'e', 'E', 'x', 'X'))
-            value = value + ".0";
-        printer.print(removePlusAndSuffix(value, "D", "d"));
+        printer.print(doubleLiteral(n.getValue()));
     }
 
-    boolean isFloatInSiblings(Node n) {
-        if (n == null || n.getParentNode() == null)
-            return false;
-        if (stopHistorySearch(n.getParentNode()))
-            return false;
-        List<Node> siblings = n.getParentNode().getChildrenNodes();
-        for (Node sibling : siblings) {
-            if (idTracker.isFloat(sibling)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    boolean isFloatInHistory(Node n) {
-        if (stopHistorySearch(n))
-            return false;
-        if (n == null) return false;
-        if (isFloatInSiblings(n))
-            return true;
-        Class clazz = idTracker.getType(n);
-        if (idTracker.isFloat(clazz)) {
-            return true;
-        } else {
-            return isFloatInHistory(n.getParentNode());
-        }
-
-    }
-
-    private boolean stopHistorySearch(Node n) {
-        return n instanceof VariableDeclarator || n instanceof MethodCallExpr || n instanceof Statement || n instanceof ArrayAccessExpr;
+    static String doubleLiteral(String value) {
+        if (!StringUtils.containsAny(value, '.', 'e', 'E', 'x', 'X'))
+            value = value + ".0";
+        return removePlusAndSuffix(value, "D", "d");
     }
 
     @Override
     public void visit(final IntegerLiteralExpr n, final Object arg) {
         printJavaComment(n.getComment(), arg);
         String output = removePlusAndSuffix(n.getValue());
-        if (isFloatInHistory(n)) {
-            printer.print(output + ".0");
+        if (Boolean.TRUE.equals(idTracker.getFloatContext(n))) {
+            printer.print(floatLiteral(output));
 
         } else {
             printer.print(output);
         }
     }
 
+    /**
+     * @return the int literal as f64 literal, hex, octal and binary literals are converted to decimal, since rust
+     * knows no float literals with a radix prefix.
+     */
+    static String floatLiteral(String value) {
+        return floatLiteral(value, false);
+    }
+
+    /**
+     * @param value  the int or long literal without sign and suffix
+     * @param isLong true if it is a long literal, the bits of a radix prefixed literal then make a long, not an int
+     * @return the literal as f64 literal
+     */
+    static String floatLiteral(String value, boolean isLong) {
+        String digits = value.replace("_", "");
+        if (digits.length() > 1 && digits.charAt(0) == '0') {
+            char c = digits.charAt(1);
+            long bits;
+            if (c == 'x' || c == 'X') {
+                bits = Long.parseUnsignedLong(digits.substring(2), 16);
+            } else if (c == 'b' || c == 'B') {
+                bits = Long.parseUnsignedLong(digits.substring(2), 2);
+            } else {
+                bits = Long.parseUnsignedLong(digits.substring(1), 8);
+            }
+            return (isLong ? bits : (int) bits) + ".0";
+        }
+        return value + ".0";
+    }
+
     @Override
     public void visit(final LongLiteralExpr n, final Object arg) {
         printJavaComment(n.getComment(), arg);
@@ -1236,7 +1329,7 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         printJavaComment(n.getComment(), arg);
         if (n.getScope() != null) {
             n.getScope().accept(this, arg);
-            if (Character.isUpperCase(n.getScope().toString().charAt(0)))
+            if (isTypeScope(n.getScope()))
                 printer.print("::");
             else
                 printer.print(".");
@@ -1263,6 +1356,60 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         printArguments(n.getArgs(), arg);
     }
 
+    /**
+     * @return true if the scope of a method call is taken as type, so that the call is printed as path.
+     * Names bound to a variable are not, else the scope is if its leftmost token starts upper case.
+     */
+    boolean isTypeScope(Expression scope) {
+        if (scope instanceof NameExpr && !(scope instanceof QualifiedNameExpr) && scope.getComment() == null) {
+            Optional<Pair<TypeDescription, Node>> decl = idTracker.findDeclarationNodeFor(((NameExpr) scope).getName(), scope);
+            if (decl.isPresent() && decl.get().getRight() instanceof VariableDeclaratorId) {
+                return false;
+            }
+        }
+        return Character.isUpperCase(leadingChar(scope));
+    }
+
+    /**
+     * @return the first character of the expression as printed by toString, found by descending along the
+     * leftmost children instead of printing the whole expression.
+     */
+    static char leadingChar(Expression e) {
+        while (true) {
+            if (e.getComment() != null) {
+                return '/';
+            }
+            if (e instanceof QualifiedNameExpr) {
+                e = ((QualifiedNameExpr) e).getQualifier();
+            } else if (e instanceof NameExpr) {
+                return ((NameExpr) e).getName().charAt(0);
+            } else if (e instanceof MethodCallExpr) {
+                MethodCallExpr call = (MethodCallExpr) e;
+                if (call.getScope() != null) {
+                    e = call.getScope();
+                } else if (!isNullOrEmpty(call.getTypeArgs())) {
+                    return '<';
+                } else {
+                    return call.getName().charAt(0);
+                }
+            } else if (e instanceof FieldAccessExpr && ((FieldAccessExpr) e).getScope() != null) {
+                e = ((FieldAccessExpr) e).getScope();
+            } else if (e instanceof ArrayAccessExpr) {
+                e = ((ArrayAccessExpr) e).getName();
+            } else if ((e instanceof ThisExpr && ((ThisExpr) e).getClassExpr() == null)
+                       || (e instanceof SuperExpr && ((SuperExpr) e).getClassExpr() == null)) {
+                return e instanceof ThisExpr ? 't' : 's';
+            } else if (e instanceof ObjectCreationExpr && ((ObjectCreationExpr) e).getScope() == null
+                       || e instanceof ArrayCreationExpr) {
+                return 'n';
+            } else if (e instanceof EnclosedExpr || e instanceof CastExpr) {
+                return '(';
+            } else {
+                return e.toString().charAt(0);
+            }
+        }
+    }
+
     @Override
     public void visit(final ObjectCreationExpr n, final Object arg) {
         printJavaComment(n.getComment(), arg);
@@ -2088,66 +2235,54 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         if (node instanceof Comment)
             return;
 
-        Node parent = node.getParentNode();
-        if (parent == null)
+        if (node.getParentNode() == null)
             return;
-        List<Node> everything = new LinkedList<Node>();
-        everything.addAll(parent.getChildrenNodes());
-        sortByBeginPosition(everything);
-        int positionOfTheChild = -1;
-        for (int i = 0; i < everything.size(); i++) {
-            if (everything.get(i) == node)
-                positionOfTheChild = i;
-        }
-        if (positionOfTheChild == -1)
-            throw new RuntimeException("My index not found!!! " + node);
-        int positionOfPreviousChild = -1;
-        for (int i = positionOfTheChild - 1; i >= 0 && positionOfPreviousChild == -1; i--) {
-            if (!(everything.get(i) instanceof Comment))
-                positionOfPreviousChild = i;
-        }
-        for (int i = positionOfPreviousChild + 1; i < positionOfTheChild; i++) {
-            Node nodeToPrint = everything.get(i);
-            if (!(nodeToPrint instanceof Comment))
-                throw new RuntimeException("Expected comment, instead " + nodeToPrint.getClass() + ". Position of previous child: "
-                        + positionOfPreviousChild + ", position of child " + positionOfTheChild);
-            nodeToPrint.accept(this, null);
+        for (Comment c : commentPlacement(node).leading(node)) {
+            c.accept(this, null);
         }
     }
 
     private void printOrphanCommentsEnding(final Node node) {
-        List<Node> everything = new LinkedList<Node>();
-        everything.addAll(node.getChildrenNodes());
-        sortByBeginPosition(everything);
-        if (everything.isEmpty()) {
-            return;
+        for (Comment c : commentPlacement(node).trailing(node)) {
+            c.accept(this, null);
         }
+    }
 
-        int commentsAtEnd = 0;
-        boolean findingComments = true;
-        while (findingComments && commentsAtEnd < everything.size()) {
-            Node last = everything.get(everything.size() - 1 - commentsAtEnd);
-            findingComments = (last instanceof Comment);
-            if (findingComments) {
-                commentsAtEnd++;
+    /**
+     * @return the placement of the orphan comments of the compilation unit, created for the root of the node if the
+     * visitor did not start at a compilation unit.
+     */
+    private CommentPlacement commentPlacement(Node node) {
+        if (commentPlacement == null) {
+            Node root = node;
+            while (root.getParentNode() != null) {
+                root = root.getParentNode();
             }
+            commentPlacement = new CommentPlacement(root);
         }
-        for (int i = 0; i < commentsAtEnd; i++) {
-            everything.get(everything.size() - commentsAtEnd + i).accept(this, null);
-        }
+        return commentPlacement;
     }
 
     public static class SourcePrinter {
 
+        private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
         private final String indentation;
         private final StringBuilder buf = new StringBuilder();
         private int level = 0;
+        // indentation strings by level, created when the level is first reached
+        private final List<String> indents = new ArrayList<>();
 
         private boolean indented = false;
-        private List<Integer> marks = new ArrayList<>();
+        // buffer positions of the open marks
+        private int[] marks = new int[16];
+        private int markCount = 0;
+        // receives flushed output, null if everything stays in buf
+        private Appendable sink;
 
         public SourcePrinter(final String indentation) {
             this.indentation = indentation;
+            indents.add("");
         }
 
         public void indent() {
@@ -2159,8 +2294,11 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         }
 
         private void makeIndent() {
-            for (int i = 0; i < level; i++) {
-                buf.append(indentation);
+            if (level > 0) {
+                while (indents.size() <= level) {
+                    indents.add(indents.get(indents.size() - 1) + indentation);
+                }
+                buf.append(indents.get(level));
             }
         }
 
@@ -2178,7 +2316,7 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
         }
 
         public void printLn() {
-            buf.append(System.getProperty("line.separator"));
+            buf.append(LINE_SEPARATOR);
             indented = false;
         }
 
@@ -2186,22 +2324,66 @@ public class RustDumpVisitor extends VoidVisitorAdapter<Object> {
             return buf.toString();
         }
 
+        public void setSink(Appendable sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Hands the buffered output to the sink and clears the buffer. Does nothing if there is no sink, nothing to
+         * flush or a mark is open, since marks refer to positions in the buffer.
+         *
+         * @throws UncheckedIOException if the sink fails
+         */
+        public void flush() {
+            if (sink == null || markCount > 0 || buf.length() == 0) {
+                return;
+            }
+            try {
+                sink.append(buf);
+                if (sink instanceof Flushable) {
+                    ((Flushable) sink).flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buf.setLength(0);
+        }
+
         public int push() {
-            marks.add(buf.length());
-            return marks.size();
+            if (markCount == marks.length) {
+                marks = Arrays.copyOf(marks, markCount * 2);
+            }
+            marks[markCount++] = buf.length();
+            return markCount;
         }
 
         public String getMark(int mark) {
-            return buf.substring(marks.get(mark - 1));
+            return buf.substring(marks[mark - 1]);
+        }
+
+        /**
+         * @return the text printed since the mark, starting after its last space, tab, newline or dot not at the end
+         * or at the start. Only this part of the text is copied.
+         */
+        public String getLastToken(int mark) {
+            int start = marks[mark - 1];
+            int end = buf.length();
+            while (end > start && buf.charAt(end - 1) == ' ') {
+                end--;
+            }
+            int i = end - 1;
+            while (i > start && "\n\t .".indexOf(buf.charAt(i)) < 0) {
+                i--;
+            }
+            return buf.substring(i <= start ? start : i + 1);
         }
 
         public void pop() {
-            buf.delete(marks.get(marks.size() - 1), buf.length());
-            marks.remove(marks.size() - 1);
+            buf.setLength(marks[--markCount]);
         }
 
         public void drop() {
-            marks.remove(marks.size() - 1);
+            markCount--;
         }
 
         @Override
@@ -0,0 +1,480 @@
+package de.aschoerk.javaconv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Converts snippets consisting only of declarations like "double x = a * 2 + 1;" from their tokens, without parsing
+ * them to a syntax tree and analysing it. The initializers may consist of literals, names, calls of methods by their
+ * simple names, unary and binary operators and parentheses. The output is the one of RustDumpVisitor for the
+ * snippet encapsulated in a class: integer literals next to floats are printed as floats, arguments which are calls
+ * are borrowed, names are converted to snake case.
+ * Anything else, also names which might be resolved by the IdTracker or concatenated strings, is left to the full
+ * conversion, convert then returns null.
+ *
+ * @author aschoerk
+ */
+class SimpleSnippetConverter {
+
+    /**
+     * longer snippets are not trivial, their conversion is dominated by the printing anyway.
+     */
+    static final int MAX_TOKENS = 256;
+
+    /**
+     * the syntax tree of a snippet converted is nested at most this deep.
+     */
+    static final int MAX_DEPTH = MAX_TOKENS + 8;
+
+    private static final AtomicLong conversions = new AtomicLong();
+
+    private static final Map<String, String> types = new HashMap<>();
+
+    static {
+        String[] mapped = {
+                "boolean", "bool",
+                "byte", "i8",
+                "char", "char",
+                "double", "f64",
+                "float", "f32",
+                "int", "i32",
+                "long", "i64",
+                "short", "i16",
+                "String", "String",
+        };
+        for (int i = 0; i < mapped.length; i += 2) {
+            types.put(mapped[i], mapped[i + 1]);
+        }
+    }
+
+    private static final Set<String> keywords = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if",
+            "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+            "protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+            "throw", "throws", "transient", "try", "void", "volatile", "while", "null", "true", "false", "_"));
+
+    // longer operators first, so that the longest one matches
+    private static final String[] operators = {
+            ">>>=", "<<=", ">>=", ">>>", "&&", "||", "==", "!=", "<=", ">=", "<<", ">>", "++", "--", "+=", "-=", "*=",
+            "/=", "%=", "&=", "|=", "^=", "->", "::", "//", "/*"
+    };
+
+    // assignments, increments, lambdas, method references and comments are not part of simple declarations
+    private static final Set<String> rejected = new HashSet<>(Arrays.asList(
+            ">>>=", "<<=", ">>=", "++", "--", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "->", "::", "//", "/*"));
+
+    private static final String[][] binaryLevels = {
+            { "||" }, { "&&" }, { "|" }, { "^" }, { "&" }, { "==", "!=" }, { "<", ">", "<=", ">=" },
+            { "<<", ">>", ">>>" }, { "+", "-" }, { "*", "/", "%" }
+    };
+
+    private static final Pattern INTEGER = Pattern.compile("0|[1-9](_*[0-9]){0,8}|0[xX][0-9a-fA-F]{1,8}");
+    private static final Pattern LONG = Pattern.compile("(0|[1-9](_*[0-9]){0,17}|0[xX][0-9a-fA-F]{1,15})[lL]");
+    private static final Pattern DOUBLE = Pattern.compile(
+            "([0-9]+\\.[0-9]*|\\.[0-9]+|[0-9]+)([eE][+-]?[0-9]+)?[fFdD]?");
+
+    /**
+     * an expression with the kind of its type, as far as the type tracking finds it without declarations.
+     */
+    private static class Expr {
+        final String text;
+        final TypeKind type;
+        final boolean integer;
+        final boolean call;
+        final Expr[] children;
+        final String[] separators;
+
+        /**
+         * @param text       the leaf printed, or the text before the children
+         * @param separators the texts printed after each child
+         */
+        Expr(String text, TypeKind type, boolean integer, boolean call, Expr[] children, String[] separators) {
+            this.text = text;
+            this.type = type;
+            this.integer = integer;
+            this.call = call;
+            this.children = children;
+            this.separators = separators;
+        }
+
+        static Expr leaf(String text, TypeKind type) {
+            return new Expr(text, type, false, false, new Expr[0], new String[0]);
+        }
+
+        /**
+         * prints like RustDumpVisitor, a node is in a float context if its parent is, or if it or one of its
+         * siblings is a float. Calls neither are in a float context nor pass one to their arguments.
+         */
+        void print(StringBuilder sb, boolean floatContext) {
+            sb.append(integer && floatContext ? RustDumpVisitor.floatLiteral(text) : text);
+            boolean inherited = floatContext;
+            if (!call) {
+                for (Expr child : children) {
+                    inherited |= child.type == TypeKind.FLOAT;
+                }
+            }
+            for (int i = 0; i < children.length; i++) {
+                Expr child = children[i];
+                if (call && child.call) {
+                    sb.append('&');
+                }
+                child.print(sb, !child.call && (inherited || child.type == TypeKind.FLOAT));
+                sb.append(separators[i]);
+            }
+        }
+    }
+
+    private final List<String> tokens = new ArrayList<>();
+    private final Set<String> declared = new HashSet<>();
+    private final Set<String> used = new HashSet<>();
+    private int pos = 0;
+
+    private SimpleSnippetConverter() {
+    }
+
+    /**
+     * @return the conversion of the snippet, or null if it is not a sequence of simple declarations.
+     */
+    static String convert(CharSequence src) {
+        String result = new SimpleSnippetConverter().tryConvert(src);
+        if (result != null) {
+            conversions.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of snippets converted without parsing.
+     */
+    static long getConversions() {
+        return conversions.get();
+    }
+
+    private String tryConvert(CharSequence src) {
+        if (!tokenize(src)) {
+            return null;
+        }
+        // the snippet is encapsulated as "class A { " + snippet + ";  }"
+        tokens.add(";");
+        List<String> fields = new ArrayList<>();
+        int emptyMembers = 0;
+        while (pos < tokens.size()) {
+            if (accept(";")) {
+                emptyMembers++;
+            } else {
+                String field = declaration();
+                if (field == null) {
+                    return null;
+                }
+                fields.add(field);
+            }
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        for (String name : used) {
+            if (declared.contains(name)) {
+                return null;
+            }
+        }
+        RustDumpVisitor.SourcePrinter printer = new RustDumpVisitor.SourcePrinter("    ");
+        printer.printLn("struct A {");
+        printer.indent();
+        for (String field : fields) {
+            printer.printLn();
+            printer.print(" ");
+            printer.print(field);
+            printer.printLn();
+        }
+        printer.unindent();
+        printer.printLn("}");
+        printer.printLn("");
+        printer.printLn("impl A {");
+        printer.indent();
+        for (int i = 0; i < emptyMembers; i++) {
+            printer.printLn();
+            printer.print(";");
+            printer.printLn();
+        }
+        printer.unindent();
+        printer.printLn("}");
+        printer.printLn();
+        return printer.getSource();
+    }
+
+    /**
+     * declaration : ["final"] type name ["=" expression] ";"
+     */
+    private String declaration() {
+        accept("final");
+        String type = types.get(next());
+        String name = next();
+        if (type == null || !isName(name) || name.equals("A")) {
+            return null;
+        }
+        declared.add(name);
+        String rustName = IdentifierCache.getShared().translate(name, RustDumpVisitor::translateName);
+        boolean constant = Character.isUpperCase(rustName.charAt(0));
+        StringBuilder sb = new StringBuilder(constant ? "const " : "let ").append(rustName).append(": ");
+        sb.append(constant && type.equals("String") ? "&'static str" : type);
+        if (accept("=")) {
+            Expr init = expression(0);
+            if (init == null) {
+                return null;
+            }
+            sb.append(" = ");
+            init.print(sb, !init.call && init.type == TypeKind.FLOAT);
+        }
+        return accept(";") ? sb.append(";").toString() : null;
+    }
+
+    /**
+     * parses the binary operators from the level on by precedence climbing, the operators of one level are left
+     * associative.
+     */
+    private Expr expression(int level) {
+        if (level == binaryLevels.length) {
+            return unary();
+        }
+        Expr left = expression(level + 1);
+        String op;
+        while (left != null && (op = binaryOperator(level)) != null) {
+            Expr right = expression(level + 1);
+            if (right == null) {
+                return null;
+            }
+            TypeKind type = binaryType(op, left.type, right.type);
+            if (type == TypeKind.STRING || type == null) {
+                return null;
+            }
+            String printed = op.equals(">>>") ? ">> /* >>> */" : op;
+            left = new Expr("", type, false, false, new Expr[] { left, right }, new String[] { " " + printed + " ", "" });
+        }
+        return left;
+    }
+
+    /**
+     * @return the kind of the result, STRING if printed as format! by RustDumpVisitor, null if it depends on the
+     * order the type tracking visits the operands in: a boolean operand of an arithmetic operator fixes its type,
+     * if it is typed before the other operand.
+     */
+    private static TypeKind binaryType(String op, TypeKind left, TypeKind right) {
+        switch (op) {
+            case "+":
+            case "-":
+            case "*":
+            case "/":
+            case "%":
+                if (left == TypeKind.BOOLEAN || right == TypeKind.BOOLEAN) {
+                    return null;
+                }
+                return TypeKind.of(TypeKind.arithmetic(kindClass(left), kindClass(right)));
+            case "&":
+            case "|":
+            case "^":
+                return TypeKind.of(TypeKind.bitwise(kindClass(left), kindClass(right)));
+            case "<<":
+            case ">>":
+            case ">>>":
+                return TypeKind.DISCRETE;
+            default:
+                return TypeKind.BOOLEAN;
+        }
+    }
+
+    /**
+     * @return a class of the kind, TypeKind decides by the kinds only.
+     */
+    private static Class kindClass(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return Boolean.TYPE;
+            case CHAR:
+                return Character.TYPE;
+            case DISCRETE:
+                return Integer.TYPE;
+            case FLOAT:
+                return Double.TYPE;
+            case STRING:
+                return String.class;
+            default:
+                return null;
+        }
+    }
+
+    private String binaryOperator(int level) {
+        if (pos < tokens.size()) {
+            for (String op : binaryLevels[level]) {
+                if (op.equals(tokens.get(pos))) {
+                    pos++;
+                    return op;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Expr unary() {
+        String t = next();
+        if (t == null) {
+            return null;
+        }
+        if (t.equals("-") || t.equals("+") || t.equals("!") || t.equals("~")) {
+            Expr operand = unary();
+            if (operand == null) {
+                return null;
+            }
+            TypeKind type = t.equals("!") ? TypeKind.BOOLEAN
+                    : t.equals("~") ? TypeKind.DISCRETE
+                    : binaryType(t, operand.type, operand.type);
+            if (type == null || type == TypeKind.STRING) {
+                return null;
+            }
+            return new Expr(t.equals("+") ? "" : t, type, false, false, new Expr[] { operand }, new String[] { "" });
+        } else if (t.equals("(")) {
+            Expr inner = expression(0);
+            if (inner == null || !accept(")")) {
+                return null;
+            }
+            return new Expr("(", inner.type, false, false, new Expr[] { inner }, new String[] { ")" });
+        } else if (t.equals("true") || t.equals("false")) {
+            return Expr.leaf(t, TypeKind.BOOLEAN);
+        } else if (t.charAt(0) == '"') {
+            return Expr.leaf(t, TypeKind.STRING);
+        } else if (t.charAt(0) == '\'') {
+            return Expr.leaf(t, TypeKind.CHAR);
+        } else if (Character.isDigit(t.charAt(0)) || t.charAt(0) == '.') {
+            return number(t);
+        } else if (isName(t) && Character.isLowerCase(t.charAt(0))) {
+            // upper case names might be resolved as classes or constants of classes
+            used.add(t);
+            String name = IdentifierCache.getShared().translate(t, RustDumpVisitor::translateName);
+            return accept("(") ? call(name) : Expr.leaf(name, TypeKind.OTHER);
+        }
+        return null;
+    }
+
+    private Expr call(String name) {
+        List<Expr> args = new ArrayList<>();
+        List<String> separators = new ArrayList<>();
+        if (!accept(")")) {
+            do {
+                Expr arg = expression(0);
+                if (arg == null) {
+                    return null;
+                }
+                args.add(arg);
+                separators.add(", ");
+            } while (accept(","));
+            if (!accept(")")) {
+                return null;
+            }
+        }
+        if (separators.isEmpty()) {
+            return new Expr(name + "()", TypeKind.OTHER, false, true, new Expr[0], new String[0]);
+        }
+        separators.set(separators.size() - 1, ")");
+        return new Expr(name + "(", TypeKind.OTHER, false, true, args.toArray(new Expr[0]),
+                separators.toArray(new String[0]));
+    }
+
+    private static Expr number(String t) {
+        if (INTEGER.matcher(t).matches()) {
+            return new Expr(RustDumpVisitor.removePlusAndSuffix(t), TypeKind.DISCRETE, true, false, new Expr[0],
+                    new String[0]);
+        } else if (LONG.matcher(t).matches()) {
+            return Expr.leaf(RustDumpVisitor.removePlusAndSuffix(t, "l", "L"), TypeKind.DISCRETE);
+        } else if (DOUBLE.matcher(t).matches() && t.matches(".*[.eEfFdD].*")) {
+            return Expr.leaf(RustDumpVisitor.doubleLiteral(t), TypeKind.FLOAT);
+        }
+        return null;
+    }
+
+    private static boolean isName(String t) {
+        return t != null && Character.isJavaIdentifierStart(t.charAt(0)) && !keywords.contains(t);
+    }
+
+    private boolean accept(String token) {
+        if (pos < tokens.size() && tokens.get(pos).equals(token)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private String next() {
+        return pos < tokens.size() ? tokens.get(pos++) : null;
+    }
+
+    /**
+     * splits the snippet into names, literals and operators.
+     *
+     * @return false if the snippet has too many tokens, comments, unicode escapes or characters not expected in a
+     * simple declaration.
+     */
+    private boolean tokenize(CharSequence src) {
+        int i = 0;
+        int length = src.length();
+        while (i < length) {
+            char c = src.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (tokens.size() == MAX_TOKENS) {
+                return false;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                do {
+                    i++;
+                } while (i < length && Character.isJavaIdentifierPart(src.charAt(i)));
+            } else if (Character.isDigit(c) || c == '.' && i + 1 < length && Character.isDigit(src.charAt(i + 1))) {
+                do {
+                    char d = src.charAt(i);
+                    boolean sign = (d == '+' || d == '-') && (src.charAt(i - 1) == 'e' || src.charAt(i - 1) == 'E');
+                    if (!Character.isLetterOrDigit(d) && d != '.' && d != '_' && !sign) {
+                        break;
+                    }
+                    i++;
+                } while (i < length);
+            } else if (c == '"' || c == '\'') {
+                i++;
+                while (i < length && src.charAt(i) != c) {
+                    char d = src.charAt(i);
+                    if (d == '\n' || d == '\r' || d == '\\' && i + 1 < length && src.charAt(i + 1) == 'u') {
+                        return false;
+                    }
+                    i += d == '\\' ? 2 : 1;
+                }
+                if (i >= length) {
+                    return false;
+                }
+                i++;
+            } else if ("+-*/%<>=!~&|^(),;".indexOf(c) >= 0) {
+                i++;
+                for (String op : operators) {
+                    if (op.length() <= length - start && op.contentEquals(src.subSequence(start, start + op.length()))) {
+                        if (rejected.contains(op)) {
+                            return false;
+                        }
+                        i = start + op.length();
+                        break;
+                    }
+                }
+            } else {
+                return false;
+            }
+            tokens.add(src.subSequence(start, i).toString());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,211 @@
+package de.aschoerk.javaconv;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Predicts from the first tokens of a java snippet whether it is a compilation unit, the body of a class or the
+ * body of a method. A snippet is only predicted to be a method body if it can not be a class body, so that the
+ * snippet is parsed as it would be by trying compilation unit, class and method in this order.
+ *
+ * @author aschoerk
+ */
+class SnippetClassifier {
+
+    enum Wrapper {
+        UNIT,
+        CLASS_BODY,
+        METHOD_BODY
+    }
+
+    private static final Set<String> modifiers = new HashSet<>(Arrays.asList(
+            "public", "protected", "private", "static", "final", "abstract", "native", "synchronized", "transient",
+            "volatile", "strictfp", "default"));
+
+    // tokens a statement, but no member of a class can start with
+    private static final Set<String> statementStarts = new HashSet<>(Arrays.asList(
+            "if", "for", "while", "do", "return", "switch", "try", "throw", "break", "continue", "new", "this", "super",
+            "null", "true", "false", "assert", "(", "++", "--", "!", "~", "-", "+"));
+
+    private static final Set<String> assignments = new HashSet<>(Arrays.asList(
+            "=", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<=", ">>=", ">>>=", "++", "--"));
+
+    // longer operators first, so that the longest one matches
+    private static final String[] operators = {
+            ">>>=", "<<=", ">>=", ">>>", "++", "--", "&&", "||", "==", "!=", "<=", ">=", "+=", "-=", "*=", "/=", "%=",
+            "&=", "|=", "^=", "<<", ">>", "->", "::"
+    };
+
+    private final CharSequence src;
+    private int pos = 0;
+
+    private SnippetClassifier(CharSequence src) {
+        this.src = src;
+    }
+
+    static Wrapper classify(CharSequence src) {
+        return new SnippetClassifier(src).classify();
+    }
+
+    private Wrapper classify() {
+        String t = next();
+        if (t == null || t.equals("package") || t.equals("import")) {
+            return Wrapper.UNIT;
+        }
+        boolean modified = false;
+        while (true) {
+            if (t == null) {
+                return Wrapper.CLASS_BODY;
+            } else if (t.equals("@")) {
+                t = next();
+                if ("interface".equals(t)) {
+                    return Wrapper.UNIT;
+                }
+                t = next();
+                while (".".equals(t)) {
+                    next();
+                    t = next();
+                }
+                if ("(".equals(t)) {
+                    skipParentheses();
+                    t = next();
+                }
+            } else if (modifiers.contains(t)) {
+                t = next();
+            } else {
+                break;
+            }
+            modified = true;
+        }
+        if (t.equals("class") || t.equals("interface") || t.equals("enum")) {
+            return Wrapper.UNIT;
+        }
+        if (modified) {
+            return Wrapper.CLASS_BODY;
+        }
+        if (statementStarts.contains(t) || isLiteral(t)) {
+            return Wrapper.METHOD_BODY;
+        }
+        if (!Character.isJavaIdentifierStart(t.charAt(0))) {
+            return Wrapper.CLASS_BODY;
+        }
+        boolean qualified = false;
+        String u = next();
+        while (".".equals(u)) {
+            String part = next();
+            if (part == null || !Character.isJavaIdentifierStart(part.charAt(0))) {
+                return Wrapper.CLASS_BODY;
+            }
+            qualified = true;
+            u = next();
+        }
+        if (u == null) {
+            return Wrapper.CLASS_BODY;
+        } else if (assignments.contains(u)) {
+            return Wrapper.METHOD_BODY;
+        } else if (u.equals("(")) {
+            if (qualified) {
+                return Wrapper.METHOD_BODY;
+            }
+            // a constructor declaration or a call
+            skipParentheses();
+            String v = next();
+            return "{".equals(v) || "throws".equals(v) ? Wrapper.CLASS_BODY : Wrapper.METHOD_BODY;
+        } else if (u.equals("[")) {
+            return "]".equals(next()) ? Wrapper.CLASS_BODY : Wrapper.METHOD_BODY;
+        } else if (u.equals(":") && !qualified) {
+            return Wrapper.METHOD_BODY;
+        }
+        return Wrapper.CLASS_BODY;
+    }
+
+    private static boolean isLiteral(String t) {
+        char c = t.charAt(0);
+        return Character.isDigit(c) || c == '"' || c == '\'' || (c == '.' && t.length() > 1);
+    }
+
+    /**
+     * skip to after the parenthesis closing the one just read.
+     */
+    private void skipParentheses() {
+        int depth = 1;
+        String t;
+        while (depth > 0 && (t = next()) != null) {
+            if (t.equals("(")) {
+                depth++;
+            } else if (t.equals(")")) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return the next token, literals as they are written, null at the end of the source.
+     */
+    private String next() {
+        skipWhitespaceAndComments();
+        if (pos >= src.length()) {
+            return null;
+        }
+        int start = pos;
+        char c = src.charAt(pos);
+        if (Character.isJavaIdentifierStart(c)) {
+            do {
+                pos++;
+            } while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)));
+        } else if (Character.isDigit(c) || c == '.' && pos + 1 < src.length() && Character.isDigit(src.charAt(pos + 1))) {
+            do {
+                pos++;
+            } while (pos < src.length() && (Character.isLetterOrDigit(src.charAt(pos)) || src.charAt(pos) == '.'));
+        } else if (c == '"' || c == '\'') {
+            pos++;
+            while (pos < src.length() && src.charAt(pos) != c && src.charAt(pos) != '\n') {
+                pos += src.charAt(pos) == '\\' ? 2 : 1;
+            }
+            pos = Math.min(pos + 1, src.length());
+        } else {
+            for (String op : operators) {
+                if (startsWith(op)) {
+                    pos += op.length();
+                    return op;
+                }
+            }
+            pos++;
+        }
+        return src.subSequence(start, pos).toString();
+    }
+
+    private boolean startsWith(String s) {
+        if (pos + s.length() > src.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (src.charAt(pos + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (pos < src.length()) {
+            char c = src.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (startsWith("//")) {
+                while (pos < src.length() && src.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (startsWith("/*")) {
+                pos += 2;
+                while (pos < src.length() && !startsWith("*/")) {
+                    pos++;
+                }
+                pos = Math.min(pos + 2, src.length());
+            } else {
+                return;
+            }
+        }
+    }
+}
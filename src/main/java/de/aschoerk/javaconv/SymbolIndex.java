@@ -0,0 +1,380 @@
+package de.aschoerk.javaconv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary index of classes and their public methods, generated at build time by the
+ * SymbolIndexGenerator and mapped into memory when used. Type resolution using this index neither loads
+ * the classes named in the converted source nor runs their static initializers.
+ *
+ * The converter only distinguishes primitive types, their boxes, String and other reference types. So
+ * {@link #typeOf(String)} yields the class itself only for the few core classes of java.lang, every other
+ * known class is represented by Object.
+ *
+ * Layout, all numbers big endian:
+ * <pre>
+ * header:  magic, version, stringCount, stringDataLength, classCount, methodCount, parameterCount
+ * strings: stringCount offsets into the string data, string data: unsigned short length, UTF-8 bytes
+ * classes: sorted by name: name, first method, method count
+ * methods: per class sorted by name: name, first parameter, short parameter count, short flags
+ * params:  string index of the parameter type name
+ * </pre>
+ *
+ * @author aschoerk
+ */
+public class SymbolIndex implements ClassLookup {
+
+    public static final String RESOURCE = "symbols.idx";
+
+    static final int MAGIC = 0x4a435349;
+    static final int VERSION = 1;
+
+    static final int FLAG_STATIC = 1;
+    static final int FLAG_VARARGS = 2;
+
+    private static final int HEADER_SIZE = 7 * 4;
+    private static final int CLASS_ENTRY_SIZE = 3 * 4;
+    private static final int METHOD_ENTRY_SIZE = 2 * 4 + 2 * 2;
+
+    private static final Map<String, Class> coreTypes = new HashMap<>();
+
+    static {
+        for (Class c : new Class[] { Boolean.TYPE, Byte.TYPE, Character.TYPE, Short.TYPE, Integer.TYPE, Long.TYPE,
+                Float.TYPE, Double.TYPE, Void.TYPE, Boolean.class, Byte.class, Character.class, Short.class,
+                Integer.class, Long.class, Float.class, Double.class, Void.class, String.class, Object.class }) {
+            coreTypes.put(c.getName(), c);
+        }
+    }
+
+    private final ByteBuffer buf;
+    private final int classCount;
+    private final int stringOffsets;
+    private final int stringData;
+    private final int classes;
+    private final int methods;
+    private final int params;
+
+    SymbolIndex(final ByteBuffer buf) {
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("no symbol index of version " + VERSION);
+        }
+        int stringCount = buf.getInt(8);
+        int stringDataLength = buf.getInt(12);
+        classCount = buf.getInt(16);
+        int methodCount = buf.getInt(20);
+        stringOffsets = HEADER_SIZE;
+        stringData = stringOffsets + stringCount * 4;
+        classes = stringData + stringDataLength;
+        methods = classes + classCount * CLASS_ENTRY_SIZE;
+        params = methods + methodCount * METHOD_ENTRY_SIZE;
+    }
+
+    public static SymbolIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new SymbolIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the index found as resource next to this class, memory mapped if it is a plain file, null if there is none.
+     */
+    static SymbolIndex load() throws IOException {
+        URL url = SymbolIndex.class.getResource(RESOURCE);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                ;
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[65536];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                bytes.write(chunk, 0, read);
+            }
+            ByteBuffer result = ByteBuffer.allocateDirect(bytes.size());
+            result.put(bytes.toByteArray());
+            result.flip();
+            return new SymbolIndex(result);
+        }
+    }
+
+    private static class DefaultHolder {
+        static final ClassLookup instance = createDefault();
+
+        private static ClassLookup createDefault() {
+            try {
+                SymbolIndex index = load();
+                if (index != null) {
+                    return new Fallback(index, ReflectionClassLookup.forJdk());
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                ;
+            }
+            return new ReflectionClassLookup();
+        }
+    }
+
+    /**
+     * asks the index first, classes not indexed, those of packages the build did not index, are looked up by
+     * the second lookup, by default reflection restricted to the JDK.
+     */
+    static class Fallback implements ClassLookup {
+        private final SymbolIndex index;
+        private final ClassLookup fallback;
+
+        Fallback(final SymbolIndex index, final ClassLookup fallback) {
+            this.index = index;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean exists(final String className) {
+            return index.exists(className) || fallback.exists(className);
+        }
+
+        @Override
+        public Class typeOf(final String className) {
+            return index.exists(className) ? index.typeOf(className) : fallback.typeOf(className);
+        }
+
+        @Override
+        public Class<?>[] parameterTypesFor(final String className, final String methodName, final int argCount) {
+            return index.exists(className) ? index.parameterTypesFor(className, methodName, argCount)
+                    : fallback.parameterTypesFor(className, methodName, argCount);
+        }
+    }
+
+    static ClassLookup defaultLookup() {
+        return DefaultHolder.instance;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    @Override
+    public boolean exists(final String className) {
+        return findClass(className) >= 0;
+    }
+
+    @Override
+    public Class typeOf(final String className) {
+        return typeFor(className);
+    }
+
+    static Class typeFor(final String typeName) {
+        return coreTypes.getOrDefault(typeName, Object.class);
+    }
+
+    @Override
+    public Class<?>[] parameterTypesFor(final String className, final String methodName, final int argCount) {
+        int method = findMethod(className, methodName, argCount);
+        if (method < 0) {
+            return null;
+        }
+        int entry = methods + method * METHOD_ENTRY_SIZE;
+        int firstParam = buf.getInt(entry + 4);
+        Class<?>[] result = new Class<?>[buf.getShort(entry + 8)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = typeFor(string(buf.getInt(params + (firstParam + i) * 4)));
+        }
+        return result;
+    }
+
+    /**
+     * same choice as MethodSignatureIndex: the only method having the name, else the only one matching the arity.
+     */
+    private int findMethod(final String className, final String methodName, final int argCount) {
+        int clazz = findClass(className);
+        if (clazz < 0) {
+            return -1;
+        }
+        byte[] name = methodName.getBytes(StandardCharsets.UTF_8);
+        int entry = classes + clazz * CLASS_ENTRY_SIZE;
+        int first = buf.getInt(entry + 4);
+        int end = first + buf.getInt(entry + 8);
+        int candidates = 0;
+        int lastCandidate = -1;
+        int resulting = -1;
+        int matching = 0;
+        for (int m = first; m < end; m++) {
+            int methodEntry = methods + m * METHOD_ENTRY_SIZE;
+            int cmp = compare(buf.getInt(methodEntry), name);
+            if (cmp > 0) {
+                break;
+            }
+            if (cmp == 0) {
+                candidates++;
+                lastCandidate = m;
+                int paramCount = buf.getShort(methodEntry + 8);
+                boolean varArgs = (buf.getShort(methodEntry + 10) & FLAG_VARARGS) != 0;
+                if (paramCount == argCount || varArgs && paramCount <= argCount) {
+                    matching++;
+                    resulting = m;
+                }
+            }
+        }
+        if (candidates == 1) {
+            return lastCandidate;
+        }
+        return matching == 1 ? resulting : -1;
+    }
+
+    private int findClass(final String className) {
+        byte[] name = className.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(buf.getInt(classes + mid * CLASS_ENTRY_SIZE), name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(final int string, final byte[] other) {
+        int offset = stringData + buf.getInt(stringOffsets + string * 4);
+        int length = buf.getShort(offset) & 0xffff;
+        offset += 2;
+        int common = Math.min(length, other.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (buf.get(offset + i) & 0xff) - (other[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - other.length;
+    }
+
+    private String string(final int string) {
+        int offset = stringData + buf.getInt(stringOffsets + string * 4);
+        byte[] bytes = new byte[buf.getShort(offset) & 0xffff];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int compareBytes(final byte[] a, final byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * write the index of the given classes
+     */
+    static void write(final List<Class<?>> classesToWrite, final OutputStream out) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        List<Class<?>> sorted = new ArrayList<>(classesToWrite);
+        sorted.sort((c1, c2) -> compareBytes(c1.getName().getBytes(StandardCharsets.UTF_8), c2.getName().getBytes(StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream paramBytes = new ByteArrayOutputStream();
+        DataOutputStream classOut = new DataOutputStream(classBytes);
+        DataOutputStream methodOut = new DataOutputStream(methodBytes);
+        DataOutputStream paramOut = new DataOutputStream(paramBytes);
+        int methodCount = 0;
+        int paramCount = 0;
+        for (Class<?> c : sorted) {
+            Set<Method> distinct = new LinkedHashSet<>();
+            for (Method m : c.getMethods()) {
+                distinct.add(m);
+            }
+            List<Method> ms = new ArrayList<>(distinct);
+            ms.sort(Comparator.comparing(m -> m.getName().getBytes(StandardCharsets.UTF_8), SymbolIndex::compareBytes));
+            classOut.writeInt(intern(c.getName(), stringIds, strings));
+            classOut.writeInt(methodCount);
+            classOut.writeInt(ms.size());
+            for (Method m : ms) {
+                methodOut.writeInt(intern(m.getName(), stringIds, strings));
+                methodOut.writeInt(paramCount);
+                methodOut.writeShort(m.getParameterCount());
+                methodOut.writeShort((Modifier.isStatic(m.getModifiers()) ? FLAG_STATIC : 0) | (m.isVarArgs() ? FLAG_VARARGS : 0));
+                for (Class<?> p : m.getParameterTypes()) {
+                    paramOut.writeInt(intern(p.getName(), stringIds, strings));
+                    paramCount++;
+                }
+                methodCount++;
+            }
+        }
+
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream stringOut = new DataOutputStream(stringBytes);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(strings.size());
+        int stringDataLength = 0;
+        for (byte[] s : strings) {
+            stringOut.writeShort(s.length);
+            stringOut.write(s);
+            stringDataLength += 2 + s.length;
+        }
+        data.writeInt(stringDataLength);
+        data.writeInt(sorted.size());
+        data.writeInt(methodCount);
+        data.writeInt(paramCount);
+        int offset = 0;
+        for (byte[] s : strings) {
+            data.writeInt(offset);
+            offset += 2 + s.length;
+        }
+        stringBytes.writeTo(data);
+        classBytes.writeTo(data);
+        methodBytes.writeTo(data);
+        paramBytes.writeTo(data);
+        data.flush();
+    }
+
+    private static int intern(final String s, final Map<String, Integer> stringIds, final List<byte[]> strings) {
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(s, id);
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+}
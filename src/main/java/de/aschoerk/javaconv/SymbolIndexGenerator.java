@@ -0,0 +1,145 @@
+package de.aschoerk.javaconv;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Generates the symbol index at build time. Called as
+ * <pre>
+ *   SymbolIndexGenerator output-file package...
+ * </pre>
+ * All top level classes of the given packages and their subpackages found in the JDK or in the jars of the
+ * classpath are indexed.
+ *
+ * @author aschoerk
+ */
+public class SymbolIndexGenerator {
+
+    private final List<String> packagePaths = new ArrayList<>();
+    private final Set<String> classNames = new TreeSet<>();
+
+    SymbolIndexGenerator(List<String> packages) {
+        for (String p : packages) {
+            packagePaths.add(p.replace('.', '/') + "/");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: SymbolIndexGenerator output-file package...");
+            System.exit(1);
+        }
+        SymbolIndexGenerator generator = new SymbolIndexGenerator(Arrays.asList(args).subList(1, args.length));
+        generator.scanJdk();
+        generator.scanClasspath(Thread.currentThread().getContextClassLoader());
+        List<Class<?>> classes = generator.loadClasses(Thread.currentThread().getContextClassLoader());
+        Path output = Paths.get(args[0]);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            SymbolIndex.write(classes, out);
+        }
+        System.out.println("SymbolIndexGenerator: indexed " + classes.size() + " classes in " + output);
+    }
+
+    void scanJdk() throws IOException {
+        FileSystem jrt;
+        try {
+            jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (FileSystemNotFoundException | IllegalArgumentException | UnsupportedOperationException e) {
+            jrt = null;
+        }
+        if (jrt != null) {
+            try (Stream<Path> modules = Files.list(jrt.getPath("/modules"))) {
+                for (Path module : (Iterable<Path>) modules::iterator) {
+                    try (Stream<Path> files = Files.walk(module)) {
+                        files.forEach(f -> addClassFile(module.relativize(f).toString()));
+                    }
+                }
+            }
+        } else {
+            File rtJar = new File(System.getProperty("java.home"), "lib/rt.jar");
+            if (rtJar.exists()) {
+                scanJar(rtJar);
+            }
+        }
+    }
+
+    void scanClasspath(ClassLoader loader) throws IOException {
+        Set<String> elements = new TreeSet<>(Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)));
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            if (l instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) l).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        try {
+                            elements.add(new File(url.toURI()).getPath());
+                        } catch (URISyntaxException e) {
+                            ;
+                        }
+                    }
+                }
+            }
+        }
+        for (String element : elements) {
+            File f = new File(element);
+            if (f.isFile() && f.getName().endsWith(".jar")) {
+                scanJar(f);
+            }
+        }
+    }
+
+    private void scanJar(File file) throws IOException {
+        try (JarFile jar = new JarFile(file)) {
+            for (JarEntry entry : (Iterable<JarEntry>) jar.stream()::iterator) {
+                addClassFile(entry.getName());
+            }
+        }
+    }
+
+    private void addClassFile(String path) {
+        // nested classes can not be reached by the dotted names used in java source
+        if (!path.endsWith(".class") || path.contains("$") || path.endsWith("module-info.class")
+            || path.endsWith("package-info.class")) {
+            return;
+        }
+        for (String packagePath : packagePaths) {
+            if (path.startsWith(packagePath)) {
+                classNames.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+                return;
+            }
+        }
+    }
+
+    List<Class<?>> loadClasses(ClassLoader loader) {
+        List<Class<?>> result = new ArrayList<>();
+        for (String name : classNames) {
+            try {
+                Class<?> clazz = Class.forName(name, false, loader);
+                clazz.getMethods();
+                result.add(clazz);
+            } catch (ClassNotFoundException | LinkageError e) {
+                ;  // not loadable here, will not be known while converting either
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package de.aschoerk.javaconv;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The kinds of types the type tracking distinguishes, with tables telling which type the operands of arithmetic
+ * and of bitwise operators give the result.
+ *
+ * @author aschoerk
+ */
+enum TypeKind {
+    /**
+     * unknown, or a class not taking part in the promotion.
+     */
+    OTHER,
+    BOOLEAN,
+    CHAR,
+    /**
+     * byte, short, int and long, boxed or not.
+     */
+    DISCRETE,
+    /**
+     * float and double, boxed or not.
+     */
+    FLOAT,
+    STRING;
+
+    private static final Map<Class, TypeKind> kinds = new HashMap<>();
+
+    // result type of + - * / % by the kinds of the operands, null if the result is not known
+    private static final Class[][] arithmetic;
+    // result type of & | ^ by the kinds of the operands
+    private static final Class[][] bitwise;
+
+    static {
+        for (Class c : new Class[] { Boolean.TYPE, Boolean.class }) {
+            kinds.put(c, BOOLEAN);
+        }
+        for (Class c : new Class[] { Character.TYPE, Character.class }) {
+            kinds.put(c, CHAR);
+        }
+        for (Class c : new Class[] { Byte.TYPE, Short.TYPE, Integer.TYPE, Long.TYPE, Byte.class, Short.class, Integer.class, Long.class }) {
+            kinds.put(c, DISCRETE);
+        }
+        for (Class c : new Class[] { Float.TYPE, Double.TYPE, Float.class, Double.class }) {
+            kinds.put(c, FLOAT);
+        }
+        kinds.put(String.class, STRING);
+
+        TypeKind[] all = values();
+        arithmetic = new Class[all.length][all.length];
+        bitwise = new Class[all.length][all.length];
+        for (TypeKind left : all) {
+            for (TypeKind right : all) {
+                arithmetic[left.ordinal()][right.ordinal()] = left.either(right, STRING) ? String.class
+                        : left.either(right, FLOAT) ? Double.TYPE
+                        : left.either(right, BOOLEAN) ? Boolean.TYPE
+                        : left.either(right, DISCRETE) ? Integer.TYPE
+                        : null;
+                bitwise[left.ordinal()][right.ordinal()] = left.either(right, BOOLEAN) ? Boolean.TYPE : Integer.TYPE;
+            }
+        }
+    }
+
+    private boolean either(TypeKind other, TypeKind kind) {
+        return this == kind || other == kind;
+    }
+
+    static TypeKind of(Class clazz) {
+        if (clazz == null) {
+            return OTHER;
+        }
+        TypeKind kind = kinds.get(clazz);
+        return kind == null ? OTHER : kind;
+    }
+
+    static Class arithmetic(Class left, Class right) {
+        return arithmetic[of(left).ordinal()][of(right).ordinal()];
+    }
+
+    static Class bitwise(Class left, Class right) {
+        return bitwise[of(left).ordinal()][of(right).ordinal()];
+    }
+}
@@ -1,11 +1,16 @@
 package de.aschoerk.javaconv;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.comments.Comment;
 import com.github.javaparser.ast.expr.ArrayAccessExpr;
 import com.github.javaparser.ast.expr.ArrayInitializerExpr;
@@ -35,6 +40,7 @@ import com.github.javaparser.ast.expr.UnaryExpr;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
 import com.github.javaparser.ast.stmt.AssertStmt;
 import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
@@ -45,6 +51,9 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
 
     IdTracker idTracker;
 
+    // operators to be typed again since the type of an operand changed
+    private final Deque<Node> worklist = new ArrayDeque<>();
+
 
     private void visitComment(final Comment n, final Object arg) {
         if (n != null) {
@@ -56,6 +65,46 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
         this.idTracker = idTracker;
     }
 
+    @Override
+    public void visit(final CompilationUnit n, final Object arg) {
+        super.visit(n, arg);
+        settle();
+        markFloatContexts(n);
+    }
+
+    /**
+     * mark top down the nodes being in a float context, where integer literals are to be printed as floats.
+     * A node is, if it or one of its siblings is typed as float or if its parent is in a float context.
+     * Variable declarators, method calls, statements and array accesses are never in a float context and do not
+     * pass one to their children.
+     */
+    void markFloatContexts(Node root) {
+        idTracker.setFloatContext(root, !endsFloatContext(root) && idTracker.isFloat(root));
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            Node parent = todo.pop();
+            List<Node> children = parent.getChildrenNodes();
+            boolean inherited = idTracker.getFloatContext(parent);
+            if (!inherited && !endsFloatContext(parent)) {
+                for (Node child : children) {
+                    if (idTracker.isFloat(child)) {
+                        inherited = true;
+                        break;
+                    }
+                }
+            }
+            for (Node child : children) {
+                idTracker.setFloatContext(child, !endsFloatContext(child) && (inherited || idTracker.isFloat(child)));
+                todo.push(child);
+            }
+        }
+    }
+
+    private static boolean endsFloatContext(Node n) {
+        return n instanceof VariableDeclarator || n instanceof MethodCallExpr || n instanceof Statement || n instanceof ArrayAccessExpr;
+    }
+
     @Override
     public void visit(final AssignExpr n, final Object arg) {
         int i = 5;
@@ -63,38 +112,105 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
     }
 
     private void propagateIntBool(final BinaryExpr destination, final Expression left, final Expression right) {
-        Class leftClazz = idTracker.getType(left);
-        Class rightClazz = idTracker.getType(right);
-        if (Boolean.TYPE.equals(leftClazz) || Boolean.TYPE.equals(rightClazz))
-            idTracker.putType(destination, Boolean.TYPE);
-        else
-            idTracker.putType(destination, Integer.TYPE);
+        put(destination, TypeKind.bitwise(idTracker.getType(left), idTracker.getType(right)));
     }
 
+    public void propagateTypes(Node destination, Node left, Node right) {
+        Class clazz = TypeKind.arithmetic(idTracker.getType(left), idTracker.getType(right));
+        if (clazz != null) {
+            put(destination, clazz);
+        }
+    }
 
+    /**
+     * sets the type of the node. If it changes, the operator the node is an operand of is typed again later, so
+     * types flow up from operands typed after their operator, like those of signs.
+     */
+    private void put(Node n, Class clazz) {
+        if (idTracker.putType(n, clazz)) {
+            Node parent = n.getParentNode();
+            if (parent != null && typedByOperands(parent)) {
+                worklist.add(parent);
+            }
+        }
+    }
 
-    public void propagateTypes(Node destination, Node left, Node right) {
-        Class leftClazz = idTracker.getType(left);
-        Class rightClazz = idTracker.getType(right);
-        if (String.class.equals(leftClazz) || String.class.equals(rightClazz))
-            idTracker.putType(destination, String.class);
-        else
-        if (Double.TYPE.equals(leftClazz) || Double.TYPE.equals(rightClazz) || Double.class.equals(leftClazz) || Double.class.equals(rightClazz)
-                || Float.TYPE.equals(leftClazz) || Float.TYPE.equals(rightClazz) || Float.class.equals(leftClazz) || Float.class.equals(rightClazz)
-                )
-            idTracker.putType(destination, Double.TYPE);
-        else
-        if (Boolean.TYPE.equals(leftClazz) || Boolean.TYPE.equals(rightClazz))
-            idTracker.putType(destination, Boolean.TYPE);
-        else if (Integer.TYPE.equals(leftClazz) || Integer.TYPE.equals(rightClazz)
-                || Short.TYPE.equals(leftClazz) || Short.TYPE.equals(rightClazz)
-                || Long.TYPE.equals(leftClazz) || Long.TYPE.equals(rightClazz)
-                || Byte.TYPE.equals(leftClazz) || Byte.TYPE.equals(rightClazz)
-                || Integer.class.equals(leftClazz) || Integer.class.equals(rightClazz)
-                 || Short.class.equals(leftClazz) || Short.class.equals(rightClazz)
-                 || Long.class.equals(leftClazz) || Long.class.equals(rightClazz)
-                 || Byte.class.equals(leftClazz) || Byte.class.equals(rightClazz))
-            idTracker.putType(destination, Integer.TYPE);
+    private static boolean typedByOperands(Node n) {
+        if (n instanceof BinaryExpr) {
+            switch (((BinaryExpr) n).getOperator()) {
+                case binOr:
+                case binAnd:
+                case xor:
+                case plus:
+                case minus:
+                case times:
+                case divide:
+                case remainder:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (n instanceof UnaryExpr) {
+            UnaryExpr.Operator operator = ((UnaryExpr) n).getOperator();
+            return operator == UnaryExpr.Operator.positive || operator == UnaryExpr.Operator.negative;
+        }
+        return n instanceof EnclosedExpr;
+    }
+
+    /**
+     * types the operators again whose operands changed their type, until no type changes anymore. Types only
+     * change from unknown to known and from discrete to float, so each operator is typed again at most a few times.
+     */
+    void settle() {
+        while (!worklist.isEmpty()) {
+            typeNode(worklist.poll());
+        }
+    }
+
+    /**
+     * types the node from its kind, its declaration and the types already known of its children, without visiting
+     * them. The visit methods do the same at their point of the traversal, so analyses walking the tree themselves
+     * can apply these steps in the same order later.
+     */
+    void typeNode(Node n) {
+        if (n instanceof BinaryExpr) {
+            typeBinary((BinaryExpr) n);
+        } else if (n instanceof EnclosedExpr) {
+            typeEnclosed((EnclosedExpr) n);
+        } else if (n instanceof UnaryExpr) {
+            typeUnary((UnaryExpr) n);
+        } else if (n instanceof ArrayAccessExpr) {
+            typeArrayAccess((ArrayAccessExpr) n);
+        } else if (n instanceof NameExpr) {
+            if (!(n instanceof QualifiedNameExpr)) {
+                typeName((NameExpr) n);
+            }
+        } else if (n instanceof BooleanLiteralExpr) {
+            put(n, Boolean.TYPE);
+        } else if (n instanceof StringLiteralExpr) {
+            // the numeric and char literals are string literals to the parser
+            put(n, literalType((StringLiteralExpr) n));
+        }
+    }
+
+    private void typeEnclosed(final EnclosedExpr n) {
+        Class clazz = n.getInner() == null ? null : idTracker.getType(n.getInner());
+        if (clazz != null) {
+            put(n, clazz);
+        }
+    }
+
+    static Class literalType(StringLiteralExpr n) {
+        if (n instanceof DoubleLiteralExpr) {
+            return Double.TYPE;
+        } else if (n instanceof IntegerLiteralExpr || n instanceof LongLiteralExpr) {
+            return Integer.TYPE;
+        } else if (n instanceof CharLiteralExpr) {
+            return Character.TYPE;
+        } else {
+            return String.class;
+        }
     }
 
     @Override
@@ -102,6 +218,10 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
         visitComment(n.getComment(), arg);
         n.getLeft().accept(this, arg);
         n.getRight().accept(this, arg);
+        typeBinary(n);
+    }
+
+    private void typeBinary(final BinaryExpr n) {
         switch (n.getOperator()) {
             case equals:
             case notEquals:
@@ -111,7 +231,7 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
             case greater:
             case lessEquals:
             case greaterEquals:
-                idTracker.putType(n,Boolean.TYPE);
+                put(n,Boolean.TYPE);
                 break;
             case binOr:
             case binAnd:
@@ -121,7 +241,7 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
             case lShift:
             case rSignedShift:
             case rUnsignedShift:
-                idTracker.putType(n,Integer.TYPE);
+                put(n,Integer.TYPE);
                 break;
             case plus:
             case minus:
@@ -135,37 +255,41 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
 
     @Override
     public void visit(final IntegerLiteralExpr n, final Object arg) {
-        idTracker.putType(n,Integer.TYPE);
+        put(n,Integer.TYPE);
         super.visit(n, arg);
     }
 
     @Override
     public void visit(final IntegerLiteralMinValueExpr n, final Object arg) {
-        idTracker.putType(n,Integer.TYPE);
+        put(n,Integer.TYPE);
         super.visit(n, arg);
     }
 
     @Override
     public void visit(final LongLiteralExpr n, final Object arg) {
-        idTracker.putType(n,Integer.TYPE);
+        put(n,Integer.TYPE);
         super.visit(n, arg);
     }
 
     @Override
     public void visit(final LongLiteralMinValueExpr n, final Object arg) {
-        idTracker.putType(n,Integer.TYPE);
+        put(n,Integer.TYPE);
         super.visit(n, arg);
     }
 
 
     @Override
     public void visit(final NameExpr n, final Object arg) {
+        typeName(n);
+        super.visit(n, arg);
+    }
+
+    private void typeName(final NameExpr n) {
         Optional<Pair<TypeDescription, Node>> b = idTracker.findDeclarationNodeFor(n.getName(), n);
         if (b.isPresent()) {
             if (b.get().getLeft() != null)
-                idTracker.putType(n, b.get().getLeft().getClazz());
+                put(n, b.get().getLeft().getClazz());
         }
-        super.visit(n, arg);
     }
 
     @Override
@@ -185,31 +309,35 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
 
     @Override
     public void visit(final StringLiteralExpr n, final Object arg) {
-        idTracker.putType(n,String.class);
+        put(n,String.class);
         super.visit(n, arg);
     }
 
     @Override
     public void visit(final UnaryExpr n, final Object arg) {
+        typeUnary(n);
+        super.visit(n, arg);
+    }
+
+    private void typeUnary(final UnaryExpr n) {
         switch (n.getOperator()) {
             case positive:
             case negative:
                 propagateTypes(n, n.getExpr(), n.getExpr());
                 break;
             case not:
-                idTracker.putType(n, Boolean.TYPE);
+                put(n, Boolean.TYPE);
                 break;
             case inverse:
             case posIncrement:
             case posDecrement:
             case preIncrement:
             case preDecrement:
-                idTracker.putType(n, Integer.TYPE);
+                put(n, Integer.TYPE);
                 break;
             default:
                 ;
         }
-        super.visit(n, arg);
     }
 
     @Override
@@ -225,21 +353,26 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
 
     @Override
     public void visit(final BooleanLiteralExpr n, final Object arg) {
-        idTracker.putType(n,Boolean.TYPE);
+        put(n,Boolean.TYPE);
         super.visit(n, arg);
     }
 
     @Override
     public void visit(final ArrayAccessExpr n, final Object arg) {
+        typeArrayAccess(n);
+        super.visit(n, arg);
+    }
+
+    private void typeArrayAccess(final ArrayAccessExpr n) {
         if (n.getName() instanceof NameExpr) {
             NameExpr ne = (NameExpr)n.getName();
             Optional<Pair<TypeDescription, Node>> b = idTracker.findDeclarationNodeFor(ne.getName(), ne);
             if (b.isPresent()) {
                 if (b.get().getLeft() != null)
-                    idTracker.putType(n, b.get().getLeft().getClazz());
+                    put(n, b.get().getLeft().getClazz());
             }
         }
-        idTracker.putType(n.getIndex(), Integer.TYPE);
+        put(n.getIndex(), Integer.TYPE);
         if (n.getIndex() instanceof NameExpr) {
             NameExpr ne = (NameExpr)n.getIndex();
             Optional<Pair<TypeDescription, Node>> b = idTracker.findDeclarationNodeFor(ne.getName(), ne);
@@ -248,7 +381,6 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
                     b.get().getLeft().clazz = Integer.TYPE;
             }
         }
-        super.visit(n, arg);
     }
 
     @Override
@@ -258,7 +390,7 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
 
     @Override
     public void visit(final CharLiteralExpr n, final Object arg) {
-        idTracker.putType(n,Character.TYPE);
+        put(n,Character.TYPE);
         super.visit(n, arg);
     }
 
@@ -269,7 +401,7 @@ public class TypeTrackerVisitor extends VoidVisitorAdapter<Object> {
 
     @Override
     public void visit(final DoubleLiteralExpr n, final Object arg) {
-        idTracker.putType(n,Double.TYPE);
+        put(n,Double.TYPE);
         super.visit(n, arg);
     }
 
@@ -0,0 +1,23 @@
+package de.aschoerk.javaconv;
+
+/**
+ * How thoroughly the structure of the blocks is checked after the analysis of a compilation unit.
+ *
+ * @author aschoerk
+ */
+public enum ValidationLevel {
+    /**
+     * no checks, the block tree is built in linear time.
+     */
+    OFF,
+    /**
+     * the root and the children of every SAMPLE_RATE-th block are checked.
+     */
+    SAMPLED,
+    /**
+     * all blocks are checked.
+     */
+    FULL;
+
+    static final int SAMPLE_RATE = 16;
+}
@@ -1,5 +1,7 @@
 <%@ page import="org.apache.commons.lang3.StringUtils" %>
-<%@ page import="de.aschoerk.javaconv.JavaConverter" %>
+<%@ page import="java.io.StringReader" %>
+<%@ page import="de.aschoerk.javaconv.ConversionExecutor" %>
+<%@ page import="de.aschoerk.javaconv.NestingTooDeepException" %>
 <html>
 <body>
 <h4>Java/Rust Converter</h4>
@@ -22,7 +24,11 @@ Input Java Code, Best are complete Class-Files, Single Methods and Statements sh
             <td width="50%">
                 <textarea rows="50" cols="100" name="textarea" >
                 <% if (!StringUtils.isEmpty(request.getParameter("textarea"))) { %>
-                   <%= JavaConverter.convert2Rust(request.getParameter("textarea")) %>
+                   <% try {
+                       ConversionExecutor.getShared().convert(new StringReader(request.getParameter("textarea")), out);
+                   } catch (NestingTooDeepException e) {
+                       out.print(e.getMessage());
+                   } %>
                 <% } %>
                 </textarea>
             </td>
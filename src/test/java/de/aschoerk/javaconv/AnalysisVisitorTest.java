@@ -0,0 +1,74 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class AnalysisVisitorTest {
+
+    private static final String SOURCE = "class A {\n"
+                                         + "  double[] t = { 1, -2, 3.5 };\n"
+                                         + "  double m(int p, double[] v) { int a = p; { double a2 = a * iv + -1; } v[a] = -2 * p; return a / 2 + 1.0; }\n"
+                                         + "  String n(int a) { for (int i = 0; i < a; i++) { a += i & 3; } return \"x\" + a + 'c' + (a > 1); }\n"
+                                         + "  long iv = 1L;\n"
+                                         + "}\n";
+
+    private static List<Node> preorder(Node root) {
+        List<Node> result = new ArrayList<>();
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            Node n = todo.pop();
+            result.add(n);
+            List<Node> children = n.getChildrenNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                todo.push(children.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void typesAsSeparatePasses() throws ParseException {
+        CompilationUnit separate = PartParser.createCompilationUnit(SOURCE);
+        IdTracker separateTracker = new IdTracker();
+        new IdTrackerVisitor().visit(separate, separateTracker);
+        new TypeTrackerVisitor(separateTracker).visit(separate, null);
+
+        CompilationUnit fused = PartParser.createCompilationUnit(SOURCE);
+        IdTracker fusedTracker = new IdTracker();
+        new AnalysisVisitor().visit(fused, fusedTracker);
+
+        List<Node> separateNodes = preorder(separate);
+        List<Node> fusedNodes = preorder(fused);
+        assertEquals(separateNodes.size(), fusedNodes.size());
+        for (int i = 0; i < separateNodes.size(); i++) {
+            Node n = separateNodes.get(i);
+            Node f = fusedNodes.get(i);
+            assertEquals(n.toString(), separateTracker.getType(n), fusedTracker.getType(f));
+            assertEquals(n.toString(), separateTracker.getFloatContext(n), fusedTracker.getFloatContext(f));
+        }
+    }
+
+    @Test
+    public void operandTypesFlowUpThroughSignsAndParentheses() {
+        String res = new JavaConverter().convert("class A { double m(double x, int a) { return -x * 2 + (a + 1.0) * 3; } }");
+        assertTrue(res, res.contains("-x * 2.0 + (a + 1.0) * 3.0"));
+    }
+}
@@ -10,6 +10,6 @@ import org.junit.runners.JUnit4;
 public class Base {
 
     protected String call(String s) {
-        return JavaConverter.convert2Rust(s);
+        return new JavaConverter(ValidationLevel.FULL).convert(s);
     }
 }
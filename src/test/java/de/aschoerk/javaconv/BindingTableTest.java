@@ -0,0 +1,97 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclaratorId;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class BindingTableTest {
+
+    private static final String SOURCE = "class A {\n"
+                                         + "  void m(int p) { int a = p; { double a2 = a * iv; } n(a); }\n"
+                                         + "  void n(int a) { for (int i = 0; i < a; i++) { a += i; unknown(i); } }\n"
+                                         + "  int iv;\n"
+                                         + "}\n";
+
+    private Optional<Pair<TypeDescription, Node>> walkScopes(IdTracker idTracker, String name, Node n) {
+        Optional<Block> block = idTracker.findInnerMostBlock(n);
+        while (block.isPresent()) {
+            Pair<TypeDescription, Node> descr = block.get().declarations.get(name);
+            if (descr != null) {
+                return Optional.of(descr);
+            }
+            block = Optional.ofNullable(block.get().parentBlock);
+        }
+        return Optional.empty();
+    }
+
+    @Test
+    public void bindingsMatchScopeWalk() throws ParseException {
+        CompilationUnit cu = PartParser.createCompilationUnit(SOURCE);
+        IdTracker idTracker = new IdTracker();
+        new IdTrackerVisitor().visit(cu, idTracker);
+        int[] count = { 0 };
+        new VoidVisitorAdapter<Object>() {
+            @Override
+            public void visit(NameExpr n, Object arg) {
+                assertEquals(n.getName(), walkScopes(idTracker, n.getName(), n), idTracker.findDeclarationNodeFor(n.getName(), n));
+                count[0]++;
+            }
+
+            @Override
+            public void visit(MethodCallExpr n, Object arg) {
+                assertEquals(n.getName(), walkScopes(idTracker, n.getName(), n), idTracker.findDeclarationNodeFor(n.getName(), n));
+                count[0]++;
+                super.visit(n, arg);
+            }
+        }.visit(cu, null);
+        assertEquals(17, count[0]);  // including the names of the class and method declarations
+    }
+
+    @Test
+    public void fieldDeclaredAfterUseIsBound() throws ParseException {
+        CompilationUnit cu = PartParser.createCompilationUnit(SOURCE);
+        IdTracker idTracker = new IdTracker();
+        new IdTrackerVisitor().visit(cu, idTracker);
+        new VoidVisitorAdapter<Object>() {
+            @Override
+            public void visit(NameExpr n, Object arg) {
+                if (n.getName().equals("iv")) {
+                    Node declaration = idTracker.findDeclarationNodeFor("iv", n).get().getRight();
+                    assertTrue(declaration instanceof VariableDeclaratorId);
+                }
+            }
+
+            @Override
+            public void visit(MethodCallExpr n, Object arg) {
+                Optional<Pair<TypeDescription, Node>> decl = idTracker.findDeclarationNodeFor(n.getName(), n);
+                if (n.getName().equals("unknown")) {
+                    assertFalse(decl.isPresent());
+                } else {
+                    assertSame(MethodDeclaration.class, decl.get().getRight().getClass());
+                }
+                super.visit(n, arg);
+            }
+        }.visit(cu, null);
+    }
+}
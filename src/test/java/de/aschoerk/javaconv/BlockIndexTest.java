@@ -0,0 +1,78 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class BlockIndexTest {
+
+    private static final String SOURCE = "class A {\n"
+                                         + "  int iv;\n"
+                                         + "  void m(int p) { int a = p; { int b = a; for (int i = 0; i < b; i++) { a += i; } } }\n"
+                                         + "  A() { iv = 1; }\n"
+                                         + "  enum E { X; int e; }\n"
+                                         + "  void n() { try { m(1); } catch (Exception e) { n(); } }\n"
+                                         + "}\n"
+                                         + "class B { void o() { } }\n";
+
+    private IdTracker callIt(CompilationUnit cu) {
+        IdTracker idTracker = new IdTracker();
+        new IdTrackerVisitor().visit(cu, idTracker);
+        return idTracker;
+    }
+
+    private Optional<Block> naiveInnerMostBlock(IdTracker idTracker, Node n) {
+        return idTracker.blocks.stream()
+                .filter(block -> block.contains(n))
+                .sorted((block1, block2) -> ((Long) block1.size()).compareTo(block2.size()))
+                .findFirst();
+    }
+
+    private void collect(Node n, List<Node> result) {
+        result.add(n);
+        for (Node child : n.getChildrenNodes()) {
+            collect(child, result);
+        }
+    }
+
+    @Test
+    public void innerMostBlockMatchesFullScan() throws ParseException {
+        CompilationUnit cu = PartParser.createCompilationUnit(SOURCE);
+        IdTracker idTracker = callIt(cu);
+        List<Node> nodes = new ArrayList<>();
+        collect(cu, nodes);
+        for (Node n : nodes) {
+            assertEquals(n.toString(), naiveInnerMostBlock(idTracker, n), idTracker.findInnerMostBlock(n));
+        }
+    }
+
+    @Test
+    public void rootIsLargestBlock() throws ParseException {
+        IdTracker idTracker = callIt(PartParser.createCompilationUnit(SOURCE));
+        assertSame(idTracker.blocks.get(0), idTracker.findRoot().get());
+    }
+
+    @Test
+    public void blockIdsAreDense() throws ParseException {
+        IdTracker idTracker = callIt(PartParser.createCompilationUnit(SOURCE));
+        for (int i = 0; i < idTracker.blocks.size(); i++) {
+            assertEquals(i + 1, idTracker.blocks.get(i).getId());
+        }
+        assertEquals("", idTracker.checkBlockStructure());
+    }
+}
@@ -72,4 +72,14 @@ public class BlockTest {
         assertTrue(!testBlock.contains(getNameExprBuilderL1C1L10C120().eL(testNode.getEndLine()+1).build()));
         assertTrue(testBlock.contains(getNameExprBuilderL1C1L10C120().eL(testNode.getEndLine()-1).build()));
     }
+
+    @Test
+    public void detectsOverlappingChildren() {
+        Block parent = new Block(getNameExprBuilderL1C1L10C120().build());
+        new Block(2, parent, new NameExprBuilder().bL(5).bC(1).eL(6).eC(10).build());
+        new Block(3, parent, new NameExprBuilder().bL(2).bC(1).eL(4).eC(10).build());
+        assertTrue(parent.disjunctChildren());
+        new Block(4, parent, new NameExprBuilder().bL(4).bC(10).eL(4).eC(20).build());
+        assertTrue(!parent.disjunctChildren());
+    }
 }
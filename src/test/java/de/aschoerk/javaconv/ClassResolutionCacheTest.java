@@ -0,0 +1,56 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class ClassResolutionCacheTest {
+
+    private static final ClassLookup lookup = new ReflectionClassLookup();
+
+    @Test
+    public void resolvesEachNameOncePerContext() {
+        ClassResolutionCache cache = new ClassResolutionCache(100);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("java.lang.String", cache.resolve(lookup, "p;java.util.*", "String", n -> { calls.incrementAndGet(); return "java.lang.String"; }));
+            assertNull(cache.resolve(lookup, "p;java.util.*", "Unknown", n -> { calls.incrementAndGet(); return null; }));
+        }
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getMisses());
+        assertEquals(4, cache.getHits());
+
+        cache.resolve(lookup, "q", "String", n -> { calls.incrementAndGet(); return "java.lang.String"; });
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void keepsLookupsApart() {
+        ClassResolutionCache cache = new ClassResolutionCache(100);
+        ClassLookup other = new ReflectionClassLookup();
+        assertNull(cache.resolve(lookup, "p", "Foo", n -> null));
+        assertEquals("p.Foo", cache.resolve(other, "p", "Foo", n -> "p.Foo"));
+        assertNull(cache.resolve(lookup, "p", "Foo", n -> "p.Foo"));
+        assertEquals("p.Foo", cache.resolve(other, "p", "Foo", n -> null));
+    }
+
+    @Test
+    public void staysBounded() {
+        ClassResolutionCache cache = new ClassResolutionCache(50);
+        for (int i = 0; i < 1000; i++) {
+            cache.resolve(lookup, "ctx", "Name" + i, n -> null);
+        }
+        assertTrue(cache.size() <= 50);
+        assertTrue(cache.getEvictions() >= 950);
+    }
+}
@@ -74,4 +74,31 @@ public class CommentTest extends Base {
                 "}\n" + 
                 "\n", actual);
     }
+
+    @Test
+    public void orphanCommentsKeepTheirPlace() {
+        String res = call("class C {\n" +
+                "  void m() {\n" +
+                "    int a = 1;\n" +
+                "    // before b\n" +
+                "    int b = 2;\n" +
+                "    // at end of method\n" +
+                "  }\n" +
+                "  // at end of class\n" +
+                "}\n");
+        Assert.assertEquals("struct C {\n" +
+                "    // at end of class\n" +
+                "}\n" +
+                "\n" +
+                "impl C {\n" +
+                "\n" +
+                "    fn  m(&self)   {\n" +
+                "         let a: i32 = 1;\n" +
+                "        // before b\n" +
+                "         let b: i32 = 2;\n" +
+                "    // at end of method\n" +
+                "    }\n" +
+                "}\n" +
+                "\n", res);
+    }
 }
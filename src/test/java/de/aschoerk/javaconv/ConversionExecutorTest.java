@@ -0,0 +1,144 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class ConversionExecutorTest {
+
+    private static final ConversionExecutor executor = new ConversionExecutor(2, 64L * 1024 * 1024, 300, ValidationLevel.FULL);
+
+    @AfterClass
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+    private static String elseIfChain(int length) {
+        StringBuilder sb = new StringBuilder("class A { int m(int x) { ");
+        for (int i = 0; i < length; i++) {
+            sb.append("if (x == ").append(i).append(") return ").append(i).append("; else ");
+        }
+        return sb.append("return -1; } }").toString();
+    }
+
+    @Test
+    public void convertsOnWorkerThread() throws IOException {
+        String source = "class A { int a() { return 1; } }";
+        assertEquals(new JavaConverter(ValidationLevel.FULL).convert(source), executor.convert(source));
+        StringBuilder out = new StringBuilder();
+        executor.convert(new StringReader(source), out);
+        assertEquals(executor.convert(source), out.toString());
+    }
+
+    @Test
+    public void writesOutOnCallingThread() throws IOException {
+        Thread caller = Thread.currentThread();
+        StringBuilder out = new StringBuilder();
+        executor.convert(new StringReader("class A { int a() { return 1; } }"), new Appendable() {
+            @Override
+            public Appendable append(final CharSequence csq) {
+                assertEquals(caller, Thread.currentThread());
+                out.append(csq);
+                return this;
+            }
+
+            @Override
+            public Appendable append(final CharSequence csq, final int start, final int end) {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(final char c) {
+                return append(String.valueOf(c));
+            }
+        });
+        assertTrue(out.toString(), out.toString().contains("return 1;"));
+    }
+
+    /**
+     * the single worker is busy with the conversion as long as it waits for the caller to take more types, so a
+     * conversion submitted while the first type is written can not finish.
+     */
+    @Test
+    public void writesFirstTypeBeforeConversionFinishes() throws IOException {
+        ConversionExecutor single = new ConversionExecutor(1, 64L * 1024 * 1024, 300, ValidationLevel.OFF);
+        try {
+            StringBuilder source = new StringBuilder();
+            for (int i = 0; i < 40; i++) {
+                source.append("class A").append(i).append(" { int a() { return ").append(i).append("; } }\n");
+            }
+            List<String> chunks = new ArrayList<>();
+            List<Boolean> converting = new ArrayList<>();
+            single.convert(new StringReader(source.toString()), new Appendable() {
+                @Override
+                public Appendable append(final CharSequence csq) {
+                    if (chunks.isEmpty()) {
+                        Future<String> next = single.submit("class B { }");
+                        try {
+                            next.get(200, TimeUnit.MILLISECONDS);
+                            converting.add(false);
+                        } catch (TimeoutException e) {
+                            converting.add(true);
+                        } catch (InterruptedException | ExecutionException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                    chunks.add(csq.toString());
+                    return this;
+                }
+
+                @Override
+                public Appendable append(final CharSequence csq, final int start, final int end) {
+                    return append(csq.subSequence(start, end));
+                }
+
+                @Override
+                public Appendable append(final char c) {
+                    return append(String.valueOf(c));
+                }
+            });
+            assertEquals(Arrays.asList(true), converting);
+            assertTrue(chunks.toString(), chunks.get(0).contains("struct A0") && !chunks.get(0).contains("struct A1 "));
+            assertTrue(String.join("", chunks).contains("struct A39"));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void convertsDeepNestingWithinLimit() {
+        String result = executor.convert(elseIfChain(40));
+        assertTrue(result, result.contains("if x == 39"));
+    }
+
+    @Test
+    public void rejectsNestingBeyondLimit() {
+        try {
+            executor.convert(elseIfChain(400));
+            fail("expected NestingTooDeepException");
+        } catch (NestingTooDeepException e) {
+            assertEquals(300, e.getLimit());
+            assertEquals(301, e.getDepth());
+            assertTrue(e.getLine() >= 1);
+        }
+    }
+}
@@ -48,12 +48,45 @@ public class DeclarationsTest extends Base {
 
     }
 
+    @Test
+    public void canConvertNumericArrayInitializer() {
+        assertThat(call("class A { void m() { double[] a = { 1, -2, 3.5, +4 }; }; }"), containsString("vec![1.0, -2.0, 3.5, 4.0, ]"));
+        assertThat(call("class A { static final double[] T = { 1, -2 }; }"), containsString("vec![1.0, -2.0, ]"));
+        assertThat(call("class A { void m() { double[] a = { 0x10, 1.5 }; }; }"), containsString("vec![16.0, 1.5, ]"));
+        assertThat(call("class A { void m() { double[] a = { 077, 0b11, 0 }; }; }"), containsString("vec![63.0, 3.0, 0.0, ]"));
+        assertThat(call("class A { static final double[] T = {1, 2, 3, -4, +5, 0x10, 1L}; }"),
+                   containsString("vec![1.0, 2.0, 3.0, -4.0, 5.0, 16.0, 1.0, ]"));
+        assertThat(call("class A { void m() { double[] a = { 0x7fffffffffffffffL, 010L, 1_000L, 0.5 }; }; }"),
+                   containsString("vec![9223372036854775807.0, 8.0, 1_000.0, 0.5, ]"));
+        assertThat(call("class A { void m() { double[] a = { -2147483648, -9223372036854775808L }; }; }"),
+                   containsString("vec![-2147483648.0, -9223372036854775808.0, ]"));
+        assertThat(call("class A { void m() { long[] a = { 1L, -2 }; }; }"), containsString("vec![1, -2, ]"));
+        assertThat(call("class A { void m() { double[][] a = { { 1, 2 }, { 3 } }; }; }"), containsString("vec![1.0, 2.0, ]"));
+    }
+
     @Test
     public void putSelfAsParam() {
         assertThat(call("void method() { }"), containsString("method(&self)"));
         assertThat(call("static void staticMethod() { }"), containsString("static_method()"));
     }
 
+    @Test
+    public void mutFollowsChangesInNestedBlocks() {
+        String res = call("class A { void m() { int a = 0; int b = 0; { a = 1; } "
+                          + "for (int i = 0; i < 2; i++) { int b = 1; b = 2; } } }");
+        assertThat(res, containsString("let mut a: i32 = 0;"));
+        assertThat(res, containsString("let b: i32 = 0;"));
+        assertThat(res, containsString("let mut b: i32 = 1;"));
+        assertThat(res, containsString("let mut i: i32 = 0;"));
+    }
+
+    @Test
+    public void upperCaseVariableIsNoTypeScope() {
+        String res = call("class A { static final int[] TABLE = { 1 }; void m(Matrix M) { M.multiply(TABLE.clone()); Math.abs(1); } }");
+        assertThat(res, containsString("M.multiply(&TABLE.clone())"));
+        assertThat(res, containsString("Math::abs(1)"));
+    }
+
     @Test
     public void enumDeclarationCreatesNewBlock() {
         assertThat(call("class X {\n" +
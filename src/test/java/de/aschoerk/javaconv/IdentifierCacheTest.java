@@ -0,0 +1,47 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class IdentifierCacheTest {
+
+    @Test
+    public void translatesEachNameOnce() {
+        IdentifierCache cache = new IdentifierCache(100);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("x_test", cache.translate("xTest", n -> { calls.incrementAndGet(); return RustDumpVisitor.translateName(n); }));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void staysBounded() {
+        IdentifierCache cache = new IdentifierCache(50);
+        for (int i = 0; i < 1000; i++) {
+            cache.translate("name" + i, n -> n);
+        }
+        assertTrue(cache.size() <= 50);
+        assertTrue(cache.getEvictions() >= 950);
+    }
+
+    @Test
+    public void translatesNames() {
+        assertEquals("x_a_a_b", RustDumpVisitor.translateName("xAAB"));
+        assertEquals("plain", RustDumpVisitor.translateName("plain"));
+        assertEquals("Type", RustDumpVisitor.translateName("Type"));
+        assertEquals("NAN", RustDumpVisitor.translateName("NaN"));
+    }
+}
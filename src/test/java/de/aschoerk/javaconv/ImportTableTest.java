@@ -0,0 +1,63 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class ImportTableTest {
+
+    private final Set<String> known = new HashSet<>(Arrays.asList(
+            "a.List", "java.util.List", "java.util.Map", "b.Map", "java.lang.String", "p.Own", "p.Map"));
+
+    private final ClassLookup lookup = new ClassLookup() {
+        @Override
+        public boolean exists(String className) {
+            return known.contains(className);
+        }
+
+        @Override
+        public Class typeOf(String className) {
+            return Object.class;
+        }
+
+        @Override
+        public Class<?>[] parameterTypesFor(String className, String methodName, int argCount) {
+            return null;
+        }
+    };
+
+    private final ImportTable table = new ImportTable("p", Arrays.asList(
+            new Import("java.util", false, true),
+            new Import("a.List", false, false),
+            new Import("b", false, true),
+            new Import("java.lang.Math.abs", true, false)));
+
+    @Test
+    public void singleTypeImportWins() {
+        assertEquals("a.List", table.resolve("List", lookup));
+    }
+
+    @Test
+    public void firstWildcardKnowingTheClassWins() {
+        assertEquals("java.util.Map", table.resolve("Map", lookup));
+    }
+
+    @Test
+    public void javaLangAndOwnPackageAreSearchedLast() {
+        assertEquals("java.lang.String", table.resolve("String", lookup));
+        assertEquals("p.Own", table.resolve("Own", lookup));
+        assertNull(table.resolve("abs", lookup));
+        assertNull(table.resolve("Unknown", lookup));
+    }
+}
@@ -0,0 +1,131 @@
+package de.aschoerk.javaconv;
+
+import static com.github.javaparser.PositionUtils.sortByBeginPosition;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class MemberParserTest {
+
+    private static final String SOURCE = "package p;\n"
+                                         + "import java.util.List;\n"
+                                         + "/** the class */\n"
+                                         + "@SuppressWarnings({\"a\", \"b\"})\n"
+                                         + "public class A<T extends Comparable<T>> {\n"
+                                         + "    // orphan\n"
+                                         + "\n"
+                                         + "    /** doc */\n"
+                                         + "    int a = 1; // trailing\n"
+                                         + "\tdouble[] d = { 1.0, 2.0 }; int b;\n"
+                                         + "    Runnable r = new Runnable() { public void run() { } };\n"
+                                         + "    Runnable l = () -> { return; };\n"
+                                         + "    static { a(\"}\"); }\n"
+                                         + "    { char c = '{'; }\n"
+                                         + "    @Deprecated int m(@SuppressWarnings({\"x\"}) int x) {\n"
+                                         + "        if (x > 0) { return x; } /* { */ return -x;\n"
+                                         + "    }\n"
+                                         + "    static class B { int i; }\n"
+                                         + "    enum E { X, Y; }\n"
+                                         + "    ;\n"
+                                         + "    // at the end\n"
+                                         + "}\n"
+                                         + "enum F { U, V }\n"
+                                         + "interface I { int i(); default int j() { return 1; } }\n";
+
+    private static final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return the tree with the positions and the comments of its nodes.
+     */
+    private static String describe(Node root) {
+        StringBuilder sb = new StringBuilder();
+        List<Node> todo = new ArrayList<>();
+        todo.add(root);
+        while (!todo.isEmpty()) {
+            Node n = todo.remove(todo.size() - 1);
+            sb.append(n.getClass().getSimpleName()).append(' ').append(n.getRange())
+                    .append(' ').append(n.getComment()).append('\n');
+            List<Node> children = new ArrayList<>(n.getChildrenNodes());
+            sortByBeginPosition(children);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                todo.add(children.get(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameAsWhole(String source) throws ParseException {
+        CompilationUnit whole = JavaParser.parse(new StringReader(source));
+        CompilationUnit split = MemberParser.parse(source, pool);
+        assertNotNull(split);
+        assertEquals(whole.toString(), split.toString());
+        assertEquals(describe(whole), describe(split));
+    }
+
+    @Test
+    public void splitUnitEqualsWholeUnit() throws ParseException {
+        assertSameAsWhole(SOURCE);
+    }
+
+    @Test
+    public void splitSourcesOfThisProject() throws ParseException, IOException {
+        for (String name : new String[] { "RustDumpVisitor", "IdTracker", "TypeTrackerVisitor", "MemberParser" }) {
+            byte[] bytes = Files.readAllBytes(Paths.get("src/main/java/de/aschoerk/javaconv", name + ".java"));
+            assertSameAsWhole(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void notSplitIfMemberDoesNotParse() {
+        assertNull(MemberParser.parse("class A { int a; void m( { } int b; }", pool));
+        assertNull(MemberParser.parse("class A { int a; }", pool));
+        assertNull(MemberParser.parse("enum E { A, B; int a; int b; }", pool));
+    }
+
+    @Test
+    public void largeSourceConvertsLikeSequential() {
+        StringBuilder sb = new StringBuilder("class A {\n");
+        for (int i = 0; sb.length() < PartParser.PARALLEL_MIN_LENGTH; i++) {
+            sb.append("    double f").append(i).append(" = ").append(i).append(";\n")
+                    .append("    int m").append(i).append("(int x) { return x * ").append(i).append(" + 1; }\n");
+        }
+        sb.append("}\n");
+        String source = sb.toString();
+        assertNotNull(MemberParser.parse(source, pool));
+        JavaConverter parallel = new JavaConverter();
+        parallel.setParsePool(pool);
+        long parses = PartParser.getParses();
+        long fallbacks = PartParser.getFallbacks();
+        assertEquals(new JavaConverter().convert(source), parallel.convert(source));
+        assertEquals(fallbacks, PartParser.getFallbacks());
+        assertEquals(parses + 2, PartParser.getParses());
+    }
+}
@@ -0,0 +1,41 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.commons.math3.util.FastMath;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class MethodSignatureIndexTest {
+
+    @Test
+    public void singleMethodIsTakenRegardlessOfArgs() {
+        assertArrayEquals(new Class[] { double.class }, MethodSignatureIndex.of(FastMath.class).parameterTypesFor("sqrt", 2));
+    }
+
+    @Test
+    public void overloadsAreChosenByArity() {
+        assertArrayEquals(new Class[] { String.class, Object[].class },
+                MethodSignatureIndex.of(String.class).parameterTypesFor("format", 2));
+    }
+
+    @Test
+    public void ambiguousOrUnknownMethodsGiveNull() {
+        assertNull(MethodSignatureIndex.of(FastMath.class).parameterTypesFor("max", 2));
+        assertNull(MethodSignatureIndex.of(FastMath.class).parameterTypesFor("noSuchMethod", 0));
+        // format(Locale, String, Object...) and format(String, Object...) both take three arguments
+        assertNull(MethodSignatureIndex.of(String.class).parameterTypesFor("format", 3));
+    }
+
+    @Test
+    public void indexIsSharedPerClass() {
+        assertSame(MethodSignatureIndex.of(FastMath.class), MethodSignatureIndex.of(FastMath.class));
+    }
+}
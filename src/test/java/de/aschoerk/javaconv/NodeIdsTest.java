@@ -0,0 +1,66 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.NameExpr;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class NodeIdsTest {
+
+    private void preorder(Node n, List<Node> result) {
+        result.add(n);
+        for (Node child : n.getChildrenNodes()) {
+            preorder(child, result);
+        }
+    }
+
+    @Test
+    public void numbersDenseInPreorder() throws ParseException {
+        CompilationUnit cu = PartParser.createCompilationUnit("class A { int i; void m(int p) { i = p * 2; } }");
+        NodeIds nodeIds = new NodeIds();
+        nodeIds.number(cu);
+        List<Node> nodes = new ArrayList<>();
+        preorder(cu, nodes);
+        assertEquals(nodes.size(), nodeIds.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(i, nodeIds.idOf(nodes.get(i)));
+        }
+    }
+
+    @Test
+    public void leavesDataOfNodesAlone() throws ParseException {
+        CompilationUnit cu = PartParser.createCompilationUnit("class A { int i; }");
+        List<Node> nodes = new ArrayList<>();
+        preorder(cu, nodes);
+        cu.setData("caller's");
+        nodes.get(nodes.size() - 1).setData(1000);
+        NodeIds nodeIds = new NodeIds();
+        nodeIds.number(cu);
+        assertEquals("caller's", cu.getData());
+        assertEquals(1000, nodes.get(nodes.size() - 1).getData());
+        assertEquals(nodes.size() - 1, nodeIds.idOf(nodes.get(nodes.size() - 1)));
+    }
+
+    @Test
+    public void nodesNotNumberedGetNextId() {
+        NodeIds nodeIds = new NodeIds();
+        NameExpr n = new NameExpr("x");
+        assertEquals(0, nodeIds.idOf(n));
+        assertEquals(0, nodeIds.idOf(n));
+        assertEquals(1, nodeIds.idOf(new NameExpr("y")));
+        assertEquals(2, nodeIds.size());
+    }
+}
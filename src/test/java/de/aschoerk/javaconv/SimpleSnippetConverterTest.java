@@ -0,0 +1,104 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class SimpleSnippetConverterTest {
+
+    private static final String[] SIMPLE = {
+            "double x = a * 2 + 1;",
+            "double x = a * 2.0 + 1;",
+            "double y = (a + 1) * 0.5 - -2;",
+            "double y = -(1 + 2) * 3e2 + 4;",
+            "float f = 1.5f * 2; double d = 2d; double e = .5; double g = 1e3;",
+            "int y = 3",
+            "int y = 3;;",
+            "int x = 2 / 3 - (4 % 5) << 2 >>> 1 & 7 | 8 ^ ~y;",
+            "long l = 10L + 1_000 * 0x1F; short s = 2; byte b = 1;",
+            "boolean b = x > 2 && y || !z && a != 1.0 + 1;",
+            "char c = 'a'; char d = '\\n';",
+            "String s = \"a b\";",
+            "boolean b = \"a\" == s;",
+            "final int X_Y = 1; int fooBar = getX();",
+            "String CONSTANT = \"c\";",
+            "double x = foo(bar(1), 2.0 * 3, (baz()), +y) * 2;",
+            "double x = max(a, 1 + 2.0) + min();",
+            "int minValue;",
+            "int x;;;",
+            "  double\tx =\n 2 ;",
+            "long y = 0xFFl; double d = 1.; float f = 1e-3f; int $x = y$;",
+            "byte v = b - 1.5f || 1 != 1;",
+    };
+
+    private static final String[] NOT_SIMPLE = {
+            "double a = 1; double x = a * 2;",
+            "int a = a();",
+            "String s = \"a\" + x;",
+            "x = foo(1, b) + 2;",
+            "System.out.println(x);",
+            "int x = 1; // c",
+            "static int x = 2;",
+            "int a, b = 2;",
+            "int[] a = { 1, 2 };",
+            "int x = y++;",
+            "int x = Integer;",
+            "double x = Math.sqrt(2);",
+            "int x = (int) y;",
+            "int x = 010;",
+            "int x = 2147483648;",
+            "int x = b ? 1 : 2;",
+            "byte v = !b % (1.5f) || 1 != 1;",
+            "",
+            ";",
+            "class A { int x = 1; }",
+            "a * 2 + 1",
+    };
+
+    private static String full(String snippet) {
+        JavaConverter converter = new JavaConverter();
+        converter.setFastPath(false);
+        return converter.convert(snippet);
+    }
+
+    @Test
+    public void simpleSnippetsConvertLikeFullConversion() {
+        for (String snippet : SIMPLE) {
+            String simple = SimpleSnippetConverter.convert(snippet);
+            assertNotNull(snippet, simple);
+            assertEquals(snippet, full(snippet), simple);
+        }
+    }
+
+    @Test
+    public void otherSnippetsAreLeftToFullConversion() {
+        for (String snippet : NOT_SIMPLE) {
+            assertNull(snippet, SimpleSnippetConverter.convert(snippet));
+        }
+    }
+
+    @Test
+    public void converterTakesFastPath() {
+        String snippet = "double x = a * 2 + 1;";
+        long conversions = SimpleSnippetConverter.getConversions();
+        assertEquals(full(snippet), JavaConverter.convert2Rust(snippet));
+        assertEquals(conversions + 1, SimpleSnippetConverter.getConversions());
+        JavaConverter limited = new JavaConverter();
+        limited.setNestingLimit(3);
+        try {
+            limited.convert(snippet);
+        } catch (NestingTooDeepException e) {
+            assertEquals(conversions + 1, SimpleSnippetConverter.getConversions());
+            return;
+        }
+        throw new AssertionError("expected NestingTooDeepException");
+    }
+}
@@ -0,0 +1,85 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.CompilationUnit;
+
+import de.aschoerk.javaconv.SnippetClassifier.Wrapper;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class SnippetClassifierTest {
+
+    private static final String[] SNIPPETS = {
+            "package p; class A {}",
+            "import java.util.List; class A {}",
+            "/** doc */ @SuppressWarnings(\"x\") public final class A {}",
+            "@interface Ann {}",
+            "int i;",
+            "int[] a = { 1, 2 };",
+            "String s = \"x\" + y",
+            "java.util.List<String> l;",
+            "public void m() { }",
+            "@Test void m() { }",
+            "A(int a) { this.a = a; }",
+            "{ x = 1; }",
+            "x = 1",
+            "a.b.c = 1;",
+            "System.out.println(\"hello\")",
+            "foo(1).bar()",
+            "x[i] = 2",
+            "i++",
+            "if (a) { b(); }",
+            "for (int i = 0; i < 10; i++) { s += i; }",
+            "return x * 2",
+            "outer: for (;;) break outer;",
+            "new A().m()",
+            "synchronized (this) { x(); }",
+            "// comment\n double x = a * 2 + 1;",
+    };
+
+    /**
+     * the compilation unit as it was created before the prediction, trying unit, class and method in this order.
+     */
+    private static CompilationUnit parseInOrder(String snippet) throws ParseException {
+        try {
+            return JavaParser.parse(new StringReader(snippet));
+        } catch (ParseException ex) {
+            try {
+                return JavaParser.parse(new StringReader("class A { " + snippet + ";  }"));
+            } catch (ParseException ex2) {
+                return JavaParser.parse(new StringReader("class A { void m() { " + snippet + "; } }"));
+            }
+        }
+    }
+
+    @Test
+    public void predictionGivesTheSameCompilationUnit() throws ParseException {
+        for (String snippet : SNIPPETS) {
+            assertEquals(snippet, parseInOrder(snippet).toString(), PartParser.createCompilationUnit(snippet).toString());
+        }
+    }
+
+    @Test
+    public void predictsWrappers() {
+        assertEquals(Wrapper.UNIT, SnippetClassifier.classify("package p;"));
+        assertEquals(Wrapper.UNIT, SnippetClassifier.classify("public abstract class A {}"));
+        assertEquals(Wrapper.CLASS_BODY, SnippetClassifier.classify("private int i = 0;"));
+        assertEquals(Wrapper.CLASS_BODY, SnippetClassifier.classify("Map.Entry<K, V> e;"));
+        assertEquals(Wrapper.CLASS_BODY, SnippetClassifier.classify("A() throws E { }"));
+        assertEquals(Wrapper.METHOD_BODY, SnippetClassifier.classify("System.out.println(\"(\")"));
+        assertEquals(Wrapper.METHOD_BODY, SnippetClassifier.classify("while (true) x--;"));
+        assertEquals(Wrapper.METHOD_BODY, SnippetClassifier.classify("x <<= 2"));
+        assertEquals(Wrapper.METHOD_BODY, SnippetClassifier.classify("/* a */ label: x();"));
+    }
+}
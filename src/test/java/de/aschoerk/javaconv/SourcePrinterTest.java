@@ -0,0 +1,57 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class SourcePrinterTest {
+
+    private static final String NL = System.getProperty("line.separator");
+
+    @Test
+    public void indentsByLevel() {
+        RustDumpVisitor.SourcePrinter printer = new RustDumpVisitor.SourcePrinter("  ");
+        printer.printLn("a");
+        printer.indent();
+        printer.indent();
+        printer.printLn("b");
+        printer.unindent();
+        printer.printLn("c");
+        assertEquals("a" + NL + "    b" + NL + "  c" + NL, printer.getSource());
+    }
+
+    @Test
+    public void nestedMarksCutAndDrop() {
+        RustDumpVisitor.SourcePrinter printer = new RustDumpVisitor.SourcePrinter("  ");
+        printer.print("x ");
+        int outer = printer.push();
+        printer.print("y");
+        int inner = printer.push();
+        printer.print("z");
+        assertEquals("z", printer.getMark(inner));
+        printer.pop();
+        assertEquals("y", printer.getMark(outer));
+        printer.drop();
+        assertEquals("x y", printer.getSource());
+    }
+
+    @Test
+    public void lastTokenAfterSeparator() {
+        RustDumpVisitor.SourcePrinter printer = new RustDumpVisitor.SourcePrinter("  ");
+        printer.print("ab ");
+        int mark = printer.push();
+        printer.print("a.b.Cd ");
+        assertEquals("Cd ", printer.getLastToken(mark));
+        printer.pop();
+        mark = printer.push();
+        printer.print("Name");
+        assertEquals("Name", printer.getLastToken(mark));
+        printer.drop();
+    }
+}
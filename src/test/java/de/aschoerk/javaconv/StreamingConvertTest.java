@@ -0,0 +1,80 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class StreamingConvertTest {
+
+    private static final String TWO_CLASSES = "class A { int a() { return 1; } }\nclass B { double b; }";
+
+    @Test
+    public void streamedOutputEqualsStringOutput() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new JavaConverter(ValidationLevel.FULL).convert(new StringReader(TWO_CLASSES), out);
+        assertEquals(new JavaConverter(ValidationLevel.FULL).convert(TWO_CLASSES), out.toString());
+    }
+
+    @Test
+    public void eachTopLevelTypeIsFlushedSeparately() throws IOException {
+        List<String> chunks = new ArrayList<>();
+        Appendable sink = new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) {
+                chunks.add(csq.toString());
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        };
+        new JavaConverter().convert(new StringReader(TWO_CLASSES), sink);
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).contains("struct A"));
+        assertTrue(chunks.get(1).contains("struct B"));
+    }
+
+    @Test
+    public void parseErrorIsWrittenToOutput() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new JavaConverter().convert(new StringReader("class {"), out);
+        assertEquals(new JavaConverter().convert("class {"), out.toString());
+    }
+
+    @Test
+    public void convertsMappedFileInItsCharset() throws IOException {
+        String source = "class A { String s = \"gr\u00fc\u00dfe \u20ac\"; }";
+        Path file = Files.createTempFile("converter", ".java");
+        try {
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder out = new StringBuilder();
+            new JavaConverter().convert(file, StandardCharsets.UTF_8, out);
+            assertEquals(new JavaConverter().convert(source), out.toString());
+            assertTrue(out.toString(), out.toString().contains("gr\u00fc\u00dfe \u20ac"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package de.aschoerk.javaconv;
 
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -16,4 +18,24 @@ public class StringExpConvTest extends Base {
 
     }
 
+    @Test
+    public void bracesInLiteralsAreEscaped() {
+        String res = call(" class A { void m(int i) { String s = \"{\" + i + \"}\"; };  }  ");
+        assertTrue(res, res.contains("format!(\"{{{}}}\", i)"));
+    }
+
+    @Test
+    public void longChainKeepsOrder() {
+        StringBuilder expr = new StringBuilder("\"s\"");
+        StringBuilder expected = new StringBuilder("format!(\"s");
+        StringBuilder args = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            expr.append(" + i + \"x\"");
+            expected.append("{}x");
+            args.append(", i");
+        }
+        String res = call(" class A { void m(int i) { String s = " + expr + "; };  }  ");
+        assertTrue(res, res.contains(expected + "\"" + args + ")"));
+    }
+
 }
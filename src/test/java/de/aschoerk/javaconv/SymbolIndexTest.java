@@ -0,0 +1,106 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.math3.util.FastMath;
+import org.apache.commons.math3.util.MathArrays;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class SymbolIndexTest {
+
+    private static Path file;
+    private static SymbolIndex index;
+
+    @BeforeClass
+    public static void writeIndex() throws IOException {
+        file = Files.createTempFile("symbols", ".idx");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            SymbolIndex.write(Arrays.asList(String.class, FastMath.class, MathArrays.class, Math.class), out);
+        }
+        index = SymbolIndex.open(file);
+    }
+
+    @AfterClass
+    public static void deleteIndex() throws IOException {
+        index = null;
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void knowsIndexedClassesOnly() {
+        assertEquals(4, index.getClassCount());
+        assertTrue(index.exists("java.lang.String"));
+        assertTrue(index.exists("org.apache.commons.math3.util.FastMath"));
+        assertFalse(index.exists("java.lang.Integer"));
+        assertFalse(index.exists("org.apache.commons.math3.util"));
+    }
+
+    @Test
+    public void onlyCoreClassesAreTypedByThemselves() {
+        assertSame(String.class, index.typeOf("java.lang.String"));
+        assertSame(Object.class, index.typeOf("org.apache.commons.math3.util.FastMath"));
+    }
+
+    @Test
+    public void findsParameterTypesLikeReflection() {
+        assertArrayEquals(new Class[] { Double.TYPE }, index.parameterTypesFor("org.apache.commons.math3.util.FastMath", "sqrt", 1));
+        assertArrayEquals(new Class[] { String.class, Object.class }, index.parameterTypesFor("java.lang.String", "format", 2));
+        assertNull(index.parameterTypesFor("org.apache.commons.math3.util.FastMath", "max", 2));
+        assertNull(index.parameterTypesFor("java.lang.Integer", "valueOf", 1));
+    }
+
+    @Test
+    public void fallsBackForClassesNotIndexed() {
+        ClassLookup lookup = new SymbolIndex.Fallback(index, ReflectionClassLookup.forJdk());
+        assertTrue(lookup.exists("java.security.MessageDigest"));
+        assertSame(java.security.MessageDigest.class, lookup.typeOf("java.security.MessageDigest"));
+        assertSame(Object.class, lookup.typeOf("org.apache.commons.math3.util.FastMath"));
+        assertArrayEquals(new Class[] { String.class }, lookup.parameterTypesFor("java.security.MessageDigest", "getInstance", 1));
+        assertFalse(lookup.exists("no.such.Clazz"));
+    }
+
+    private static boolean initialized = false;
+
+    static class Initialized {
+        static {
+            initialized = true;
+        }
+    }
+
+    @Test
+    public void fallbackNeitherLoadsNorInitializesApplicationClasses() {
+        ClassLookup lookup = new SymbolIndex.Fallback(index, ReflectionClassLookup.forJdk());
+        assertFalse(lookup.exists(Initialized.class.getName()));
+        assertFalse(lookup.exists(JavaConverter.class.getName()));
+        assertTrue(new ReflectionClassLookup().exists("de.aschoerk.javaconv.SymbolIndexTest$Initialized"));
+        assertFalse(initialized);
+    }
+
+    @Test
+    public void defaultLookupResolvesClassesOutsideIndexedPackages() {
+        String result = new JavaConverter().convert("import java.security.*;\n"
+                                                    + "class A { void m() { try { MessageDigest.getInstance(\"MD5\"); }"
+                                                    + " catch (NoSuchAlgorithmException nsae) {"
+                                                    + " throw new InternalError(\"MD5 not supported\", nsae); } } }");
+        assertTrue(result, result.contains("InternalError::new(\"MD5 not supported\", &nsae)"));
+    }
+}
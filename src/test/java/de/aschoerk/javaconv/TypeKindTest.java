@@ -0,0 +1,31 @@
+package de.aschoerk.javaconv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * @author aschoerk
+ */
+@RunWith(JUnit4.class)
+public class TypeKindTest {
+
+    @Test
+    public void promotesArithmeticOperands() {
+        assertEquals(String.class, TypeKind.arithmetic(String.class, Double.TYPE));
+        assertEquals(Double.TYPE, TypeKind.arithmetic(Integer.TYPE, Float.class));
+        assertEquals(Integer.TYPE, TypeKind.arithmetic(Long.TYPE, null));
+        assertEquals(Boolean.TYPE, TypeKind.arithmetic(Boolean.TYPE, Integer.TYPE));
+        assertNull(TypeKind.arithmetic(Character.TYPE, null));
+        assertNull(TypeKind.arithmetic(Object.class, null));
+    }
+
+    @Test
+    public void promotesBitwiseOperands() {
+        assertEquals(Boolean.TYPE, TypeKind.bitwise(Boolean.TYPE, null));
+        assertEquals(Integer.TYPE, TypeKind.bitwise(Long.TYPE, Short.TYPE));
+    }
+}